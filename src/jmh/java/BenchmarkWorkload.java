@@ -0,0 +1,291 @@
+import benchmarks.Workload;
+import com.google.api.client.json.JsonObjectParser;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.Events;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the operations measured by the benchmarks against the application classes.
+ */
+public class BenchmarkWorkload implements Workload {
+
+    private static final List<String> UNIVERSITY_CODES = Collections.singletonList("SU");
+    private static final JsonObjectParser JSON_PARSER = new JsonObjectParser(JacksonFactory.getDefaultInstance());
+
+    private List<Event> sharedCalendar;
+    private byte[] sharedCalendarPage;
+    private Staff personalCalendarOwner;
+    private byte[] personalCalendarPage;
+    private final Map<Staff, List<Event>> personalCalendars = new LinkedHashMap<>();
+    private final List<Event> combinedPersonalCalendars = new ArrayList<>();
+    private List<TechnocampsEvent> loadedEvents;
+    private CalendarGenerator generator;
+    private String[] summaries;
+
+    @Override
+    public void load(long seed, int numberOfOfficers, int numberOfEvents) {
+        Staff.getStaffStore().clear();
+        TechnocampsEvent.getEventStore().clear();
+        generator = new CalendarGenerator(seed, numberOfOfficers, numberOfEvents);
+        ArrayList<Staff> staffList = generator.generateStaff();
+        Staff.addStaffMembers(staffList);
+        sharedCalendar = generator.generateSharedCalendar(staffList);
+        try {
+            sharedCalendarPage = JacksonFactory.getDefaultInstance().toByteArray(new Events().setItems(sharedCalendar));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        personalCalendars.clear();
+        combinedPersonalCalendars.clear();
+        for (Staff staffMember : staffList) {
+            personalCalendars.put(staffMember, generator.generateUnavailability(staffMember));
+            combinedPersonalCalendars.addAll(personalCalendars.get(staffMember));
+        }
+        personalCalendarOwner = staffList.get(0);
+        List<Event> ownEntries = personalCalendars.get(personalCalendarOwner);
+        if (ownEntries.isEmpty()) {
+            throw new IllegalStateException(personalCalendarOwner.getName() + " has no generated entries");
+        }
+        List<Event> personalPage = new ArrayList<>(sharedCalendar.size());
+        while (personalPage.size() < sharedCalendar.size()) {
+            personalPage.add(ownEntries.get(personalPage.size() % ownEntries.size()));
+        }
+        try {
+            personalCalendarPage = JacksonFactory.getDefaultInstance().toByteArray(new Events().setItems(personalPage));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        parseSharedCalendar();
+        for (Map.Entry<Staff, List<Event>> calendar : personalCalendars.entrySet()) {
+            CalendarQuickstart.addUnavailabilityFromCalendar(calendar.getValue(), calendar.getKey());
+        }
+        loadedEvents = TechnocampsEvent.getAllEvents();
+    }
+
+    @Override
+    public int parseSharedCalendar() {
+        TechnocampsEvent.getEventStore().clear();
+        CalendarQuickstart.addEventsFromCalendar(sharedCalendar, UNIVERSITY_CODES);
+        return TechnocampsEvent.getAllEvents().size();
+    }
+
+    @Override
+    public int parseUnavailability() {
+        TechnocampsEvent.getEventStore().clear();
+        for (Map.Entry<Staff, List<Event>> calendar : personalCalendars.entrySet()) {
+            CalendarQuickstart.addUnavailabilityFromCalendar(calendar.getValue(), calendar.getKey());
+        }
+        return TechnocampsEvent.getAllEvents().size();
+    }
+
+    @Override
+    public int parseCombinedUnavailability() {
+        TechnocampsEvent.getEventStore().clear();
+        TechnocampsEvent.addEvents(CalendarQuickstart.parseUnavailabilityFromCalendars(combinedPersonalCalendars));
+        return TechnocampsEvent.getAllEvents().size();
+    }
+
+    @Override
+    public int decodePageModel() {
+        try {
+            Events events = JacksonFactory.getDefaultInstance().fromInputStream(
+                    new ByteArrayInputStream(sharedCalendarPage), StandardCharsets.UTF_8, Events.class);
+            return CalendarQuickstart.parseEventsFromCalendar(events.getItems(), UNIVERSITY_CODES).size();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int decodePageStreaming() {
+        try {
+            List<TechnocampsEvent> newEvents = new ArrayList<>();
+            new CalendarPageDecoder(CalendarQuickstart.sharedEventReader(newEvents, UNIVERSITY_CODES))
+                    .decode(new ByteArrayInputStream(sharedCalendarPage), StandardCharsets.UTF_8);
+            return newEvents.size();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int decodeBatchPage() {
+        try {
+            List<TechnocampsEvent> newEvents = new ArrayList<>();
+            CalendarPageDecoder decoder = new CalendarPageDecoder(
+                    CalendarQuickstart.unavailabilityReader(newEvents, personalCalendarOwner));
+            new CalendarQuickstart.BatchPageParser(JSON_PARSER, decoder).parseAndClose(
+                    new ByteArrayInputStream(personalCalendarPage), StandardCharsets.UTF_8, Events.class);
+            return newEvents.size();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void convertEventDates(Blackhole blackhole) {
+        try {
+            for (TechnocampsEvent event : TechnocampsEvent.getAllEvents()) {
+                DateTime dateOfEvent = event.getDateOfEvent();
+                String ukDate = Validation.convertDateTimeToUKFormat(dateOfEvent);
+                blackhole.consume(ukDate);
+                blackhole.consume(Validation.convertDateTimeToUKFormat(dateOfEvent.toStringRfc3339()));
+                blackhole.consume(Validation.convertStringToDate(ukDate));
+            }
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int officerNumberOfEvents(String startDate, String endDate) {
+        try {
+            int total = 0;
+            for (Staff staff : Staff.getAllStaffList()) {
+                if (staff.isDeliveryOfficer()) {
+                    total += staff.getOfficerNumberOfEvents(startDate, endDate);
+                }
+            }
+            return total;
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public double averageOfficerNumberOfEvents(String startDate, String endDate) {
+        try {
+            return Staff.getAllStaffList().get(0).averageOfficerNumberOfEvents(startDate, endDate);
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void displayAvailableOfficers(String date) {
+        try {
+            Staff.displayAvailableOfficers(date);
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void recommendOfficerForWorkshop(String date) {
+        try {
+            Staff.recommendOfficerForWorkshop(date, Staff.getAllStaffList());
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void printAllEvents(String startDate, String endDate) {
+        try {
+            TechnocampsEvent.printAllEvents(startDate, endDate);
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public long replaceEvents() {
+        return TechnocampsEvent.getEventStore().update(events -> {
+            events.clear();
+            events.addAll(loadedEvents);
+        }).getVersion();
+    }
+
+    @Override
+    public int readSnapshot() {
+        List<TechnocampsEvent> snapshot = TechnocampsEvent.getAllEvents();
+        int size = 0;
+        for (TechnocampsEvent event : snapshot) {
+            if (event != null) {
+                size++;
+            }
+        }
+        if (size != loadedEvents.size()) {
+            throw new IllegalStateException("Snapshot has " + size + " of " + loadedEvents.size() + " events");
+        }
+        return size;
+    }
+
+    @Override
+    public void loadSummaries(int numberOfSummaries) {
+        summaries = generator.generateSummaries(numberOfSummaries);
+    }
+
+    @Override
+    public int parseSummaries(Blackhole blackhole) {
+        List<Staff> staffList = Staff.getAllStaffList();
+        SummaryParser parser = new SummaryParser();
+        int parsed = 0;
+        for (int i = 0; i < summaries.length; i++) {
+            if (parser.parseShared(summaries[i], "SU")) {
+                blackhole.consume(parser.getEventType());
+                blackhole.consume(parser.getSchoolName());
+                blackhole.consume(parser.getKeyStage());
+                blackhole.consume(parser.getWorkshop());
+                parsed++;
+            }
+            String eventType = SummaryParser.parseUnavailabilityType(summaries[i],
+                    staffList.get(i % staffList.size()).getInitials());
+            if (eventType != null) {
+                blackhole.consume(eventType);
+                parsed++;
+            }
+        }
+        return parsed;
+    }
+
+    @Override
+    public int splitSummaries(Blackhole blackhole) {
+        List<Staff> staffList = Staff.getAllStaffList();
+        int parsed = 0;
+        for (int i = 0; i < summaries.length; i++) {
+            String summary = summaries[i];
+            if (summary == null) {
+                continue;
+            }
+            ArrayList<String> summaryList = new ArrayList<>(Arrays.asList(summary.split(" - ")));
+            if (summaryList.size() == 4) {
+                summary = summary + " - ?";
+            } else if (summaryList.size() == 3) {
+                summary = summary + " - ? - ?";
+            } else if (summaryList.size() == 2) {
+                summary = summary + " - ? - ? - ?";
+            }
+            ArrayList<String> eventName = new ArrayList<>(Arrays.asList(summary.split(" - ")));
+            if (eventName.size() >= 5 && eventName.get(0).equals("SU")) {
+                blackhole.consume(eventName.get(1));
+                blackhole.consume(eventName.get(2));
+                blackhole.consume(eventName.get(3));
+                blackhole.consume(eventName.get(4));
+                parsed++;
+            }
+            ArrayList<String> unavailabilityName = new ArrayList<>(Arrays.asList(summary.split(":")));
+            ArrayList<String> staffName =
+                    new ArrayList<>(Arrays.asList(staffList.get(i % staffList.size()).getName().split(" ")));
+            String initials = staffName.get(0).substring(0, 1) + staffName.get(1).substring(0, 1);
+            if (unavailabilityName.size() > 1 && unavailabilityName.get(0).equals(initials)) {
+                blackhole.consume(unavailabilityName.get(1).trim());
+                parsed++;
+            }
+        }
+        return parsed;
+    }
+}
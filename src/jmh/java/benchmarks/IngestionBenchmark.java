@@ -0,0 +1,43 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures reading calendar events into TechnocampsEvent objects, including summary parsing and matching
+ * attendees to staff members.
+ */
+@State(Scope.Benchmark)
+public class IngestionBenchmark {
+
+    @Param({"200"})
+    public int officers;
+
+    @Param({"1000", "10000", "100000"})
+    public int events;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create(officers, events);
+    }
+
+    @Benchmark
+    public int parseSharedCalendar() {
+        return workload.parseSharedCalendar();
+    }
+
+    @Benchmark
+    public int parseUnavailability() {
+        return workload.parseUnavailability();
+    }
+
+    @Benchmark
+    public int parseCombinedUnavailability() {
+        return workload.parseCombinedUnavailability();
+    }
+}
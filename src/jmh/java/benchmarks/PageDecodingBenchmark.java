@@ -0,0 +1,48 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures reading a full page of 2500 events from the Google Calendar API into TechnocampsEvent objects, through
+ * an Events object and with CalendarPageDecoder, and a page of 2500 entries of a personal calendar as it is read
+ * from a batch response. Scores are per event, so with the gc profiler gc.alloc.rate.norm
+ * gives the bytes allocated for each event read.
+ */
+@State(Scope.Benchmark)
+public class PageDecodingBenchmark {
+
+    private static final int EVENTS_PER_PAGE = 2500;
+
+    @Param({"50"})
+    public int officers;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create(officers, EVENTS_PER_PAGE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_PAGE)
+    public int decodePageModel() {
+        return workload.decodePageModel();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_PAGE)
+    public int decodePageStreaming() {
+        return workload.decodePageStreaming();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_PAGE)
+    public int decodeBatchPage() {
+        return workload.decodeBatchPage();
+    }
+}
@@ -0,0 +1,46 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures finding available officers for a date and recommending an officer for a workshop.
+ */
+@State(Scope.Benchmark)
+public class RecommendationBenchmark {
+
+    private static final String DATE = "15/10/2019";
+
+    @Param({"10", "20"})
+    public int officers;
+
+    @Param({"500", "1000"})
+    public int events;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create(officers, events);
+        Workloads.silenceConsole();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Workloads.restoreConsole();
+    }
+
+    @Benchmark
+    public void displayAvailableOfficers() {
+        workload.displayAvailableOfficers(DATE);
+    }
+
+    @Benchmark
+    public void recommendOfficerForWorkshop() {
+        workload.recommendOfficerForWorkshop(DATE);
+    }
+}
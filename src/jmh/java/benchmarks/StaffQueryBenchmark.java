@@ -0,0 +1,52 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the event counting queries of Staff and the listing of events between dates in TechnocampsEvent.
+ */
+@State(Scope.Benchmark)
+public class StaffQueryBenchmark {
+
+    private static final String START_DATE = "01/10/2019";
+    private static final String END_DATE = "31/12/2019";
+
+    @Param({"10", "50"})
+    public int officers;
+
+    @Param({"1000", "10000"})
+    public int events;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create(officers, events);
+        Workloads.silenceConsole();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Workloads.restoreConsole();
+    }
+
+    @Benchmark
+    public int officerNumberOfEvents() {
+        return workload.officerNumberOfEvents(START_DATE, END_DATE);
+    }
+
+    @Benchmark
+    public double averageOfficerNumberOfEvents() {
+        return workload.averageOfficerNumberOfEvents(START_DATE, END_DATE);
+    }
+
+    @Benchmark
+    public void printAllEvents() {
+        workload.printAllEvents(START_DATE, END_DATE);
+    }
+}
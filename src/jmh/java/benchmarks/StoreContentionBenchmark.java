@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Replaces the event store on one thread while three threads read snapshots of it and count events, as a
+ * background refresh does while reports are open. Every snapshot read is checked to be complete, so the benchmark
+ * fails if a reader ever sees a half finished refresh.
+ */
+@State(Scope.Group)
+public class StoreContentionBenchmark {
+
+    private static final String START_DATE = "01/10/2019";
+    private static final String END_DATE = "31/12/2019";
+
+    @Param({"10"})
+    public int officers;
+
+    @Param({"1000", "10000"})
+    public int events;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create(officers, events);
+        Workloads.silenceConsole();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Workloads.restoreConsole();
+    }
+
+    @Benchmark
+    @Group("refreshWhileReading")
+    @GroupThreads(1)
+    public long refresh() {
+        return workload.replaceEvents();
+    }
+
+    @Benchmark
+    @Group("refreshWhileReading")
+    @GroupThreads(3)
+    public int read() {
+        return workload.readSnapshot() + workload.officerNumberOfEvents(START_DATE, END_DATE);
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures reading event summaries with SummaryParser against splitting them into lists as they were read before.
+ * One in ten summaries is malformed, so the benchmark also fails if SummaryParser throws an exception on any of them.
+ */
+@State(Scope.Benchmark)
+public class SummaryParserBenchmark {
+
+    @Param({"20"})
+    public int officers;
+
+    @Param({"1000000"})
+    public int summaries;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create(officers, 0);
+        workload.loadSummaries(summaries);
+    }
+
+    @Benchmark
+    public int parseSummaries(Blackhole blackhole) {
+        return workload.parseSummaries(blackhole);
+    }
+
+    @Benchmark
+    public int splitSummaries(Blackhole blackhole) {
+        return workload.splitSummaries(blackhole);
+    }
+}
@@ -0,0 +1,30 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the date conversions in Validation which every date filtered query performs for each event.
+ */
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    @Param({"1000", "10000"})
+    public int events;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create(10, events);
+    }
+
+    @Benchmark
+    public void convertEventDates(Blackhole blackhole) {
+        workload.convertEventDates(blackhole);
+    }
+}
@@ -0,0 +1,156 @@
+package benchmarks;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Operations of the booking system measured by the benchmarks. JMH cannot generate benchmarks for classes in the
+ * default package, so the application classes are reached through this interface, which is implemented by
+ * BenchmarkWorkload in the default package.
+ */
+public interface Workload {
+
+    /**
+     * Clears the staff list and the list of all events and fills them with a generated roster and calendar.
+     *
+     * @param seed             a long seed for the generator.
+     * @param numberOfOfficers an int of the number of staff members.
+     * @param numberOfEvents   an int of the number of events in the shared calendar.
+     */
+    void load(long seed, int numberOfOfficers, int numberOfEvents);
+
+    /**
+     * Reads the generated shared calendar into a cleared list of all events.
+     *
+     * @return the number of events read.
+     */
+    int parseSharedCalendar();
+
+    /**
+     * Reads the generated personal calendars of every staff member into a cleared list of all events.
+     *
+     * @return the number of events read.
+     */
+    int parseUnavailability();
+
+    /**
+     * Reads the generated personal calendars of every staff member, put together into one list, into a cleared list
+     * of all events in a single pass, finding whose each entry is by its initials.
+     *
+     * @return the number of events read.
+     */
+    int parseCombinedUnavailability();
+
+    /**
+     * Reads the generated shared calendar, written out as a single page of JSON as sent by the Google Calendar API,
+     * into an Events object and then into TechnocampsEvent objects, as pages were read before CalendarPageDecoder.
+     *
+     * @return the number of events read.
+     */
+    int decodePageModel();
+
+    /**
+     * Reads the generated shared calendar, written out as a single page of JSON as sent by the Google Calendar API,
+     * straight into TechnocampsEvent objects with CalendarPageDecoder.
+     *
+     * @return the number of events read.
+     */
+    int decodePageStreaming();
+
+    /**
+     * Reads a page of a staff member's personal calendar, with as many entries as the generated shared calendar has
+     * events, as the part of a batch response is read by CalendarQuickstart.readUnavailabilityInBatches, with
+     * CalendarPageDecoder through CalendarQuickstart.BatchPageParser.
+     *
+     * @return the number of events read.
+     */
+    int decodeBatchPage();
+
+    /**
+     * Converts the date of every event between the date formats used by Validation.
+     *
+     * @param blackhole consumes the converted dates.
+     */
+    void convertEventDates(Blackhole blackhole);
+
+    /**
+     * Counts the number of events between two dates for every delivery officer.
+     *
+     * @param startDate a String in the format dd/MM/yyyy.
+     * @param endDate   a String in the format dd/MM/yyyy.
+     * @return the total number of events.
+     */
+    int officerNumberOfEvents(String startDate, String endDate);
+
+    /**
+     * Calculates the average number of events between two dates of full time delivery officers.
+     *
+     * @param startDate a String in the format dd/MM/yyyy.
+     * @param endDate   a String in the format dd/MM/yyyy.
+     * @return the average number of events.
+     */
+    double averageOfficerNumberOfEvents(String startDate, String endDate);
+
+    /**
+     * Finds the available officers for a date, including their recommendation.
+     *
+     * @param date a String in the format dd/MM/yyyy.
+     */
+    void displayAvailableOfficers(String date);
+
+    /**
+     * Recommends officers for a date from every staff member.
+     *
+     * @param date a String in the format dd/MM/yyyy.
+     */
+    void recommendOfficerForWorkshop(String date);
+
+    /**
+     * Lists every event between two dates.
+     *
+     * @param startDate a String in the format dd/MM/yyyy.
+     * @param endDate   a String in the format dd/MM/yyyy.
+     */
+    void printAllEvents(String startDate, String endDate);
+
+    /**
+     * Replaces every event with the events read when the workload was loaded, in a single new version of the
+     * event store, in the same way as a background refresh.
+     *
+     * @return the version number published.
+     */
+    long replaceEvents();
+
+    /**
+     * Reads a snapshot of all events and checks it holds every event read when the workload was loaded, which it
+     * must do however often the events are being replaced.
+     *
+     * @return the number of events in the snapshot.
+     * @throws IllegalStateException if the snapshot is missing any events.
+     */
+    int readSnapshot();
+
+    /**
+     * Generates event summaries to be read by parseSummaries, one in ten of them malformed.
+     *
+     * @param numberOfSummaries an int of the number of summaries.
+     */
+    void loadSummaries(int numberOfSummaries);
+
+    /**
+     * Reads every generated summary with SummaryParser, as a shared calendar summary and as a personal calendar
+     * entry of a staff member.
+     *
+     * @param blackhole consumes the fields read.
+     * @return the number of summaries read as events.
+     */
+    int parseSummaries(Blackhole blackhole);
+
+    /**
+     * Reads every generated summary by splitting it into lists and padding missing fields, as summaries were read
+     * before SummaryParser, for comparison. Malformed summaries which cannot be read this way are skipped.
+     *
+     * @param blackhole consumes the fields read.
+     * @return the number of summaries read as events.
+     */
+    int splitSummaries(Blackhole blackhole);
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Creates workloads for the benchmarks and silences the console output of the reports being measured.
+ */
+final class Workloads {
+
+    static final long SEED = 20190901L;
+
+    private static PrintStream console;
+
+    private Workloads() {
+    }
+
+    /**
+     * Creates a workload loaded with a generated roster and calendar.
+     *
+     * @param numberOfOfficers an int of the number of staff members.
+     * @param numberOfEvents   an int of the number of events in the shared calendar.
+     * @return the loaded workload.
+     */
+    static Workload create(int numberOfOfficers, int numberOfEvents) {
+        try {
+            Workload workload = (Workload) Class.forName("BenchmarkWorkload").getDeclaredConstructor().newInstance();
+            workload.load(SEED, numberOfOfficers, numberOfEvents);
+            return workload;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkWorkload not found", e);
+        }
+    }
+
+    /**
+     * Replaces System.out with a stream that discards everything printed to it.
+     */
+    static synchronized void silenceConsole() {
+        if (console == null) {
+            console = System.out;
+            System.setOut(new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+            }));
+        }
+    }
+
+    /**
+     * Puts back the System.out replaced by silenceConsole.
+     */
+    static synchronized void restoreConsole() {
+        if (console != null) {
+            System.setOut(console);
+            console = null;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs reports from the command line without any prompts, so they can be run from scripts and scheduled jobs. The
+ * calendar is loaded once and then every command is run in turn. The commands are:
+ * <pre>
+ * report events [--from dd/MM/yyyy] [--to dd/MM/yyyy]
+ * report staff-events --name "Staff Name" [--from dd/MM/yyyy] [--to dd/MM/yyyy]
+ * report workload [--from dd/MM/yyyy] [--to dd/MM/yyyy]
+ * report heatmap [--from dd/MM/yyyy] [--to dd/MM/yyyy]
+ * report fairness [--from dd/MM/yyyy] [--to dd/MM/yyyy]
+ * report streaks [--from dd/MM/yyyy] [--to dd/MM/yyyy] [--events 2] [--weeks 3]
+ * available --date dd/MM/yyyy
+ * recommend --date dd/MM/yyyy
+ * metrics
+ * </pre>
+ * Every report also takes "--format text" or "--format csv", and "--output file" to write it to a file instead of
+ * the console. The heatmap, fairness and streaks reports cover a term of 13 weeks unless --to is given. The heatmap
+ * as CSV gives the number of events of each delivery officer in each week, and the fairness report how many events
+ * each officer is above or below the average over the two weeks either side of each week. The streaks report lists
+ * the --weeks or more weeks in a row an officer was --events or more above or below the average.
+ */
+public class BatchCommands {
+
+    private static final int TERM_WEEKS = 13;
+    private static final double STREAK_EVENTS = 2;
+    private static final int STREAK_WEEKS = 3;
+
+    private final PrintStream console;
+
+    /**
+     * Constructor for BatchCommands objects.
+     *
+     * @param console the stream reports are written to when no output file is given.
+     */
+    public BatchCommands(PrintStream console) {
+        this.console = console;
+    }
+
+    /**
+     * Splits command line arguments into commands, which are separated by ";".
+     *
+     * @param args a List of Strings of the arguments after "--batch".
+     * @return a List of the commands, each a List of its words.
+     */
+    public static List<List<String>> splitCommands(List<String> args) {
+        List<List<String>> commands = new ArrayList<>();
+        List<String> command = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals(";")) {
+                if (!command.isEmpty()) {
+                    commands.add(command);
+                }
+                command = new ArrayList<>();
+            } else {
+                command.add(arg);
+            }
+        }
+        if (!command.isEmpty()) {
+            commands.add(command);
+        }
+        return commands;
+    }
+
+    /**
+     * Reads the commands from a script file. There is one command on each line, words containing spaces can be put
+     * in double quotes and lines starting with # are ignored.
+     *
+     * @param script the script file.
+     * @return a List of the commands, each a List of its words.
+     * @throws IOException if the script file cannot be read.
+     */
+    public static List<List<String>> readScript(File script) throws IOException {
+        List<List<String>> commands = new ArrayList<>();
+        for (String line : Files.readAllLines(script.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                commands.add(splitWords(line));
+            }
+        }
+        return commands;
+    }
+
+    private static List<String> splitWords(String line) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean inQuotes = false;
+        boolean inWord = false;
+        for (char character : line.toCharArray()) {
+            if (character == '"') {
+                inQuotes = !inQuotes;
+                inWord = true;
+            } else if (Character.isWhitespace(character) && !inQuotes) {
+                if (inWord) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                    inWord = false;
+                }
+            } else {
+                word.append(character);
+                inWord = true;
+            }
+        }
+        if (inWord) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * Runs every command, carrying on to the next command if one fails.
+     *
+     * @param commands a List of the commands, each a List of its words.
+     * @return an int of the number of commands which failed.
+     */
+    public int runAll(List<List<String>> commands) {
+        int failures = 0;
+        for (List<String> command : commands) {
+            String metricName = "batch." + command.get(0).toLowerCase();
+            if (metricName.equals("batch.report") && command.size() > 1) {
+                metricName = metricName + "." + command.get(1).toLowerCase();
+            }
+            long start = System.nanoTime();
+            try {
+                run(command);
+                Metrics.recordLatency(metricName, start);
+            } catch (IllegalArgumentException | ParseException | IOException e) {
+                failures++;
+                Metrics.increment("batch.failures");
+                System.err.println("Error in \"" + String.join(" ", command) + "\": " + e.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Runs a single command.
+     *
+     * @param command a List of the words of the command.
+     * @throws IllegalArgumentException if the command or its options are not valid.
+     * @throws ParseException           if a date is incorrectly formatted.
+     * @throws IOException              if the output file cannot be written.
+     */
+    public void run(List<String> command) throws ParseException, IOException {
+        String name = command.get(0).toLowerCase();
+        if (name.equals("report")) {
+            if (command.size() < 2) {
+                throw new IllegalArgumentException("report needs one of events, staff-events, workload, heatmap, fairness or streaks");
+            }
+            name = name + " " + command.get(1).toLowerCase();
+        }
+        Map<String, String> options = parseOptions(command.subList(name.split(" ").length, command.size()));
+        List<String[]> rows = new ArrayList<>();
+        switch (name) {
+            case "report events":
+                rows.add(new String[]{"Date", "Time", "Type", "School", "Key Stage", "Workshop", "Delivery Officers"});
+                for (TechnocampsEvent event : TechnocampsEvent.getEventsBetween(getFromDate(options),
+                        getDate(options, "to", false))) {
+                    rows.add(new String[]{event.getDisplayDate(), event.getDisplayTime(), event.getEventType(),
+                            event.getSchoolName(), event.getKeyStage(), event.getWorkshop(),
+                            event.getDisplayStaffNames()});
+                }
+                break;
+            case "report staff-events":
+                String staffName = options.get("name");
+                if (staffName == null || !Staff.staffMemberExists(staffName)) {
+                    throw new IllegalArgumentException("--name must be the name of a staff member");
+                }
+                rows.add(new String[]{"Date", "Time", "Type", "School", "Key Stage", "Workshop"});
+                for (TechnocampsEvent event : Staff.getStaffEventList(staffName, getFromDate(options),
+                        getDate(options, "to", false))) {
+                    rows.add(new String[]{event.getDisplayDate(), event.getDisplayTime(), event.getEventType(),
+                            event.getSchoolName(), event.getKeyStage(), event.getWorkshop()});
+                }
+                break;
+            case "report workload":
+                String startDate = getDate(options, "from", false);
+                rows.add(new String[]{"Delivery Officer", "Number Of Events", "Recommended Number Of Events"});
+                for (StaffWorkload workload : Staff.getStaffWorkloads(startDate,
+                        startDate == null ? null : getDate(options, "to", false))) {
+                    rows.add(new String[]{workload.getName(), String.valueOf(workload.getNumberOfEvents()),
+                            String.valueOf(workload.getRecommendedNumberOfEvents())});
+                }
+                break;
+            case "report heatmap":
+                WorkloadMatrix workloadMatrix = WorkloadMatrix.getCurrent();
+                LocalDate firstDay = WorkloadMatrix.parseUKDate(getFromDate(options));
+                LocalDate lastDay = getLastDayOfTerm(options, firstDay);
+                if (!"csv".equalsIgnoreCase(options.get("format"))) {
+                    for (String line : workloadMatrix.toHeatmap(getDeliveryOfficers(), firstDay, lastDay)
+                            .split("\n")) {
+                        rows.add(new String[]{line});
+                    }
+                    break;
+                }
+                List<LocalDate> mondays = WorkloadMatrix.getMondays(firstDay, lastDay);
+                rows.add(getWeekHeader(mondays));
+                for (Staff staff : getDeliveryOfficers()) {
+                    double[] weeklyEvents = workloadMatrix.getWeeklyEvents(staff, mondays);
+                    String[] row = new String[mondays.size() + 1];
+                    row[0] = staff.getName();
+                    for (int i = 0; i < weeklyEvents.length; i++) {
+                        row[i + 1] = String.valueOf(weeklyEvents[i]);
+                    }
+                    rows.add(row);
+                }
+                break;
+            case "report fairness":
+            case "report streaks":
+                firstDay = WorkloadMatrix.parseUKDate(getFromDate(options));
+                FairnessReport fairness = new FairnessReport(WorkloadMatrix.getCurrent(), getDeliveryOfficers(),
+                        firstDay, getLastDayOfTerm(options, firstDay), FairnessReport.WINDOW_WEEKS);
+                if (name.equals("report fairness")) {
+                    rows.add(getWeekHeader(fairness.getMondays()));
+                    for (int i = 0; i < fairness.getOfficers().size(); i++) {
+                        double[] comparedToAverage = fairness.getComparedToAverage(i);
+                        String[] row = new String[comparedToAverage.length + 1];
+                        row[0] = fairness.getOfficers().get(i).getName();
+                        for (int week = 0; week < comparedToAverage.length; week++) {
+                            row[week + 1] = String.format(Locale.UK, "%.2f", comparedToAverage[week]);
+                        }
+                        rows.add(row);
+                    }
+                    break;
+                }
+                rows.add(new String[]{"Delivery Officer", "Streak", "From", "To", "Weeks", "Largest Difference"});
+                for (FairnessReport.Streak streak : fairness.findStreaks(
+                        getNumber(options, "events", STREAK_EVENTS), (int) getNumber(options, "weeks", STREAK_WEEKS))) {
+                    rows.add(new String[]{streak.getName(), streak.isOverload() ? "Overload" : "Underload",
+                            Validation.convertLocalDateToUKFormat(streak.getFirstDay()),
+                            Validation.convertLocalDateToUKFormat(streak.getLastDay()),
+                            String.valueOf(streak.getNumberOfWeeks()),
+                            String.format(Locale.UK, "%.2f", streak.getLargestDifference())});
+                }
+                break;
+            case "available":
+            case "recommend":
+                String date = getDate(options, "date", true);
+                List<Staff> officers = Staff.findAvailableOfficers(date);
+                if (name.equals("recommend")) {
+                    officers = Staff.findRecommendedOfficers(date, officers);
+                }
+                rows.add(new String[]{"Delivery Officer", "Events That Week", "Compared To Average"});
+                for (Staff staff : officers) {
+                    rows.add(new String[]{staff.getName(), String.valueOf(Staff.getNumberOfEventsForWeek(staff, date)),
+                            String.valueOf(staff.getEventsComparedToAverageForMonth(staff, date))});
+                }
+                break;
+            case "metrics":
+                console.print(Metrics.toText());
+                return;
+            default:
+                throw new IllegalArgumentException("unknown command");
+        }
+        writeRows(rows, options);
+    }
+
+    private static Map<String, String> parseOptions(List<String> words) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < words.size(); i += 2) {
+            String option = words.get(i);
+            if (!option.startsWith("--") || i + 1 == words.size()) {
+                throw new IllegalArgumentException("expected --option value but found " + option);
+            }
+            options.put(option.substring(2).toLowerCase(), words.get(i + 1));
+        }
+        return options;
+    }
+
+    private static String getDate(Map<String, String> options, String option, boolean required)
+            throws ParseException {
+        String date = options.get(option);
+        if (date == null) {
+            if (required) {
+                throw new IllegalArgumentException("--" + option + " dd/MM/yyyy is required");
+            }
+            return null;
+        }
+        Validation.checkValidDate(date);
+        return date;
+    }
+
+    private static String getFromDate(Map<String, String> options) throws ParseException {
+        String date = getDate(options, "from", false);
+        return date == null ? Validation.convertDateTimeToUKFormat(Main.getStartingDate()) : date;
+    }
+
+    private static LocalDate getLastDayOfTerm(Map<String, String> options, LocalDate firstDay)
+            throws ParseException {
+        String date = getDate(options, "to", false);
+        LocalDate lastDay = date == null ? firstDay.plusWeeks(TERM_WEEKS - 1) : WorkloadMatrix.parseUKDate(date);
+        if (lastDay.isBefore(firstDay)) {
+            throw new IllegalArgumentException("--to must not be before --from");
+        }
+        return lastDay;
+    }
+
+    private static double getNumber(Map<String, String> options, String option, double defaultValue) {
+        String number = options.get(option);
+        if (number == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + option + " must be a number");
+        }
+    }
+
+    private static List<Staff> getDeliveryOfficers() {
+        List<Staff> deliveryOfficers = new ArrayList<>();
+        for (Staff staff : Staff.getAllStaffList()) {
+            if (staff.isDeliveryOfficer()) {
+                deliveryOfficers.add(staff);
+            }
+        }
+        return deliveryOfficers;
+    }
+
+    private static String[] getWeekHeader(List<LocalDate> mondays) {
+        String[] header = new String[mondays.size() + 1];
+        header[0] = "Delivery Officer";
+        for (int i = 0; i < mondays.size(); i++) {
+            header[i + 1] = Validation.convertLocalDateToUKFormat(mondays.get(i));
+        }
+        return header;
+    }
+
+    private void writeRows(List<String[]> rows, Map<String, String> options) throws FileNotFoundException {
+        String format = options.containsKey("format") ? options.get("format").toLowerCase() : "text";
+        if (!format.equals("text") && !format.equals("csv")) {
+            throw new IllegalArgumentException("--format must be text or csv");
+        }
+        String outputFile = options.get("output");
+        PrintStream output = outputFile == null ? console : new PrintStream(outputFile);
+        try {
+            for (String[] row : rows) {
+                StringBuilder line = new StringBuilder();
+                for (String value : row) {
+                    if (line.length() > 0) {
+                        line.append(format.equals("csv") ? "," : " | ");
+                    }
+                    line.append(format.equals("csv") ? toCsvValue(value) : String.valueOf(value));
+                }
+                output.println(line);
+            }
+        } finally {
+            if (output != console) {
+                output.close();
+            }
+        }
+    }
+
+    private static String toCsvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
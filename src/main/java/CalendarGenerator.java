@@ -0,0 +1,326 @@
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventAttendee;
+import com.google.api.services.calendar.model.EventDateTime;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic staff rosters and calendars for testing the system with large numbers of delivery officers
+ * and events. The same seed always produces the same roster and calendars.
+ */
+public class CalendarGenerator {
+
+    private static final String[] FIRST_NAMES = {"Alex", "Bethan", "Carys", "Dafydd", "Emma", "Ffion", "Gareth",
+            "Hannah", "Ioan", "Jack", "Kate", "Lauren", "Luke", "Megan", "Nia", "Owen", "Rhys", "Sian", "Tom",
+            "Wyn", "Casey", "Elin", "Geraint", "Huw", "Lowri", "Mared", "Osian", "Rama", "Steffan", "Tomos"};
+    private static final String[] LAST_NAMES = {"Andrews", "Blanchard", "Davies", "Denner", "Edwards", "Evans",
+            "Gaya", "Griffiths", "Hughes", "Jenkins", "Jones", "Lewis", "Morgan", "Owen", "Parry", "Powell",
+            "Price", "Pritchard", "Rees", "Roberts", "Thomas", "Vaidhiyanathan", "Williams", "Wing"};
+    private static final String[] SCHOOLS = {"Ysgol Gyfun Gwyr", "Bishop Gore", "Olchfa", "Pontarddulais",
+            "Ysgol Bryn Tawe", "Morriston", "Penyrheol", "Bishopston", "Cefn Hengoed", "Dylan Thomas",
+            "Birchgrove", "Pentrehafod", "Ysgol Gymraeg Bryniago", "Gowerton", "Llansamlet"};
+    private static final String[] KEY_STAGES = {"KS2", "KS3", "KS4", "KS5"};
+    private static final String[] WORKSHOPS = {"Scratch", "Python", "Micro:bit", "Minecraft", "Robotics",
+            "App Inventor", "Cyber Security", "Web Design", "Unplugged", "Game Design"};
+    private static final String[] EVENT_TYPES = {"Workshop", "Workshop", "Workshop", "Workshop", "Technoclub",
+            "Technoclub", "Technoteach", "Meeting"};
+    private static final String[] OTHER_UNIVERSITIES = {"AU", "BU", "CU", "GU"};
+    private static final String[] START_TIMES = {"09:00", "09:30", "10:00", "11:00", "13:00", "13:30"};
+    private static final ZoneId CALENDAR_ZONE = ZoneId.of("Europe/London");
+
+    private final long seed;
+    private final int numberOfOfficers;
+    private final int numberOfEvents;
+    private final LocalDate firstDate;
+    private final int spanInDays;
+    private final int unavailabilityPerOfficer;
+
+    /**
+     * Constructor for a generator covering the year following the calendar starting date, with ten Annual Leave or
+     * Unavailability entries for each delivery officer.
+     *
+     * @param seed             a long seed, the same seed always produces the same data.
+     * @param numberOfOfficers an int of the number of staff members to generate.
+     * @param numberOfEvents   an int of the number of events to generate in the shared calendar.
+     */
+    public CalendarGenerator(long seed, int numberOfOfficers, int numberOfEvents) {
+        this(seed, numberOfOfficers, numberOfEvents,
+                LocalDate.parse(Main.getStartingDate().toStringRfc3339().substring(0, 10)), 365, 10);
+    }
+
+    /**
+     * Constructor for CalendarGenerator objects.
+     *
+     * @param seed                     a long seed, the same seed always produces the same data.
+     * @param numberOfOfficers         an int of the number of staff members to generate.
+     * @param numberOfEvents           an int of the number of events to generate in the shared calendar.
+     * @param firstDate                the earliest date events are generated for.
+     * @param spanInDays               an int of the number of days after firstDate events are spread across.
+     * @param unavailabilityPerOfficer an int of the number of AL/Unavailable entries in each personal calendar.
+     */
+    public CalendarGenerator(long seed, int numberOfOfficers, int numberOfEvents, LocalDate firstDate,
+                             int spanInDays, int unavailabilityPerOfficer) {
+        this.seed = seed;
+        this.numberOfOfficers = numberOfOfficers;
+        this.numberOfEvents = numberOfEvents;
+        this.firstDate = firstDate;
+        this.spanInDays = spanInDays;
+        this.unavailabilityPerOfficer = unavailabilityPerOfficer;
+    }
+
+    /**
+     * Generates a roster of staff members with unique names and email addresses. Most are full time delivery
+     * officers, some are part time and a few are admins who do not deliver.
+     *
+     * @return an ArrayList of generated Staff objects.
+     */
+    public ArrayList<Staff> generateStaff() {
+        Random random = new Random(seed);
+        ArrayList<Staff> staffList = new ArrayList<>();
+        HashSet<String> usedNames = new HashSet<>();
+        for (int i = 0; i < numberOfOfficers; i++) {
+            String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                    + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            if (!usedNames.add(name)) {
+                name = name + " " + (i + 1);
+                usedNames.add(name);
+            }
+            String email = name.toLowerCase().replace(" ", ".") + "@technocamps.com";
+            int timeCommitment = random.nextInt(4) == 0 ? 50 : 100;
+            boolean adminPrivileges = i == 0 || random.nextInt(20) == 0;
+            boolean isDeliveryOfficer = i != 0 && random.nextInt(25) != 0;
+            staffList.add(new Staff(name, email, timeCommitment, adminPrivileges, isDeliveryOfficer));
+        }
+        return staffList;
+    }
+
+    /**
+     * Generates the events of the shared calendar in the form returned by the Google Calendar API. Summaries use
+     * the "SU - Type - School - KS - Workshop" format, some with fields missing, some belonging to other
+     * universities and some all day events. Each event has between one and three staff members attending.
+     *
+     * @param staffList the generated roster the attendees are taken from.
+     * @return a List of events ordered by start time.
+     */
+    public List<Event> generateSharedCalendar(List<Staff> staffList) {
+        Random random = new Random(seed + 1);
+        ArrayList<LocalDate> schoolDays = getSchoolDays();
+        int[] eventsPerDay = new int[schoolDays.size()];
+        for (int i = 0; i < numberOfEvents; i++) {
+            eventsPerDay[random.nextInt(schoolDays.size())]++;
+        }
+        List<Event> items = new ArrayList<>(numberOfEvents);
+        int eventNumber = 0;
+        for (int day = 0; day < schoolDays.size(); day++) {
+            for (int i = 0; i < eventsPerDay[day]; i++) {
+                String summary = generateSummary(random);
+                ArrayList<EventAttendee> attendees = new ArrayList<>();
+                int numberOfAttendees = 1 + random.nextInt(3);
+                for (int attendee = 0; attendee < numberOfAttendees; attendee++) {
+                    Staff staffMember = staffList.get(random.nextInt(staffList.size()));
+                    attendees.add(new EventAttendee().setEmail(staffMember.getEmail()));
+                }
+                attendees.add(new EventAttendee().setEmail("teacher" + random.nextInt(500) + "@school.wales"));
+                Event event;
+                if (random.nextInt(20) == 0) {
+                    event = createAllDayEvent(schoolDays.get(day), 1);
+                } else {
+                    LocalTime startTime = LocalTime.parse(START_TIMES[random.nextInt(START_TIMES.length)]);
+                    event = createTimedEvent(schoolDays.get(day), startTime, 60 + 30 * random.nextInt(5));
+                }
+                items.add(event.setId(String.format("su%08d", eventNumber++)).setSummary(summary)
+                        .setAttendees(attendees));
+            }
+        }
+        return items;
+    }
+
+    private static String generateSummary(Random random) {
+        String universityCode = random.nextInt(10) == 0
+                ? OTHER_UNIVERSITIES[random.nextInt(OTHER_UNIVERSITIES.length)] : "SU";
+        String summary = universityCode + " - " + EVENT_TYPES[random.nextInt(EVENT_TYPES.length)] + " - "
+                + SCHOOLS[random.nextInt(SCHOOLS.length)] + " - "
+                + KEY_STAGES[random.nextInt(KEY_STAGES.length)] + " - "
+                + WORKSHOPS[random.nextInt(WORKSHOPS.length)];
+        if (random.nextInt(8) == 0) {                               //Some summaries are missing their last fields
+            int fieldsKept = 2 + random.nextInt(3);
+            int cut = 0;
+            for (int field = 0; field < fieldsKept; field++) {
+                cut = summary.indexOf(" - ", cut) + 3;
+            }
+            summary = summary.substring(0, cut - 3);
+        }
+        return summary;
+    }
+
+    /**
+     * Generates event summaries without the rest of their events, for measuring how quickly summaries are read.
+     * Most are shared calendar summaries as in generateSharedCalendar, some are personal calendar entries in the
+     * "XY: AL" format, and one in ten are malformed: random pieces of summaries, separators and colons, empty or
+     * null.
+     *
+     * @param numberOfSummaries an int of the number of summaries to generate.
+     * @return an array of the summaries.
+     */
+    public String[] generateSummaries(int numberOfSummaries) {
+        Random random = new Random(seed + 2);
+        String[] pieces = {"SU", "SU ", " - ", " -", "- ", ":", ": ", "AL", "Unavailable", "?", "", " ",
+                FIRST_NAMES[0], SCHOOLS[0], "\t", "\u00e9"};
+        String[] summaries = new String[numberOfSummaries];
+        for (int i = 0; i < numberOfSummaries; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 7) {
+                summaries[i] = generateSummary(random);
+            } else if (kind < 9) {
+                summaries[i] = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)].charAt(0) + ""
+                        + LAST_NAMES[random.nextInt(LAST_NAMES.length)].charAt(0) + ": "
+                        + (random.nextInt(3) == 0 ? "Unavailable" : "AL");
+            } else if (random.nextInt(20) == 0) {
+                summaries[i] = null;
+            } else {
+                StringBuilder summary = new StringBuilder();
+                int numberOfPieces = random.nextInt(8);
+                for (int piece = 0; piece < numberOfPieces; piece++) {
+                    summary.append(pieces[random.nextInt(pieces.length)]);
+                }
+                summaries[i] = summary.toString();
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Generates the events of a staff member's personal calendar. It contains their Annual Leave and Unavailability
+     * entries in the "XY: AL" format, where XY are their initials, along with other personal events.
+     *
+     * @param staffMember the staff member the calendar belongs to.
+     * @return a List of events ordered by start time.
+     */
+    public List<Event> generateUnavailability(Staff staffMember) {
+        Random random = new Random(seed + 31L * staffMember.getEmail().hashCode());
+        ArrayList<LocalDate> schoolDays = getSchoolDays();
+        String[] staffName = staffMember.getName().split(" ");
+        String initials = staffName[0].substring(0, 1) + staffName[1].substring(0, 1);
+        String emailName = staffMember.getEmail().substring(0, staffMember.getEmail().indexOf('@'));
+        List<Event> items = new ArrayList<>();
+        int entryNumber = 0;
+        for (int day = 0; day < schoolDays.size() && entryNumber < unavailabilityPerOfficer * 2; day++) {
+            if (random.nextInt(Math.max(1, schoolDays.size() / (unavailabilityPerOfficer * 2))) != 0) {
+                continue;
+            }
+            Event event;
+            String summary;
+            if (random.nextInt(2) == 0) {
+                summary = initials + ": " + (random.nextInt(3) == 0 ? "Unavailable" : "AL");
+                event = random.nextInt(4) == 0
+                        ? createTimedEvent(schoolDays.get(day), LocalTime.of(13, 0), 240)
+                        : createAllDayEvent(schoolDays.get(day), 1 + random.nextInt(3));
+            } else {
+                summary = random.nextInt(2) == 0 ? "Team Meeting" : "Training - " + WORKSHOPS[random.nextInt(
+                        WORKSHOPS.length)];
+                event = createTimedEvent(schoolDays.get(day), LocalTime.of(15, 30), 60);
+            }
+            items.add(event.setId(String.format("%s-%04d", emailName, entryNumber++))
+                    .setSummary(summary).setCreator(new Event.Creator().setEmail(staffMember.getEmail())));
+        }
+        return items;
+    }
+
+    /**
+     * Writes a roster to a text file in the same format as the staff details text file.
+     *
+     * @param staffList the roster to write.
+     * @param staffFile the file to write to.
+     * @throws IOException if issues with writing to the file.
+     */
+    public static void writeStaffFile(List<Staff> staffList, File staffFile) throws IOException {
+        try (FileWriter outputToFile = new FileWriter(staffFile)) {
+            for (int i = 0; i < staffList.size(); i++) {
+                Staff officer = staffList.get(i);
+                outputToFile.write(officer.getName() + ", " + officer.getEmail() + ", " + officer.getTimeCommitment()
+                        + ", " + officer.getAdminPrivileges() + ", " + officer.isDeliveryOfficer());
+                if (i != staffList.size() - 1) {
+                    outputToFile.write("\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Populates the staff list and the list of all events with generated data. The events are read in through
+     * CalendarQuickstart in the same way as events loaded from the Google Calendar API.
+     */
+    public void populateStores() {
+        ArrayList<Staff> staffList = generateStaff();
+        Staff.addStaffMembers(staffList);
+        CalendarQuickstart.addEventsFromCalendar(generateSharedCalendar(staffList),
+                Main.getCalendarSources().keySet());
+        for (Staff staffMember : staffList) {
+            CalendarQuickstart.addUnavailabilityFromCalendar(generateUnavailability(staffMember), staffMember);
+        }
+    }
+
+    /**
+     * Generates the same calendar as populateStores and reads it against the staff already in the staff list,
+     * without changing the list of all events. The leave of generated staff who are not in the staff list is left
+     * out, as it can only be kept for staff with a staff id. A generator with the same seed always gives the same events, so it
+     * is used to check that refreshing an unchanged calendar changes nothing.
+     *
+     * @return an ArrayList of every event read.
+     */
+    public ArrayList<TechnocampsEvent> generateEvents() {
+        ArrayList<Staff> staffList = generateStaff();
+        ArrayList<TechnocampsEvent> events =
+                CalendarQuickstart.parseEventsFromCalendar(generateSharedCalendar(staffList),
+                        Main.getCalendarSources().keySet());
+        for (Staff staffMember : staffList) {
+            Staff storedStaffMember = Staff.findStaffMember(staffMember.getName());
+            if (storedStaffMember != null) {
+                events.addAll(CalendarQuickstart.parseUnavailabilityFromCalendar(generateUnavailability(staffMember),
+                        storedStaffMember));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Gets every weekday in the span of the generator.
+     *
+     * @return an ArrayList of dates from Monday to Friday.
+     */
+    private ArrayList<LocalDate> getSchoolDays() {
+        ArrayList<LocalDate> schoolDays = new ArrayList<>();
+        for (int i = 0; i < spanInDays; i++) {
+            LocalDate date = firstDate.plusDays(i);
+            if (date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                schoolDays.add(date);
+            }
+        }
+        return schoolDays;
+    }
+
+    private static Event createTimedEvent(LocalDate date, LocalTime startTime, int lengthInMinutes) {
+        DateTimeFormatter format = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+        String start = date.atTime(startTime).atZone(CALENDAR_ZONE).format(format);
+        String end = date.atTime(startTime).plusMinutes(lengthInMinutes).atZone(CALENDAR_ZONE).format(format);
+        return new Event().setStart(new EventDateTime().setDateTime(new DateTime(start)))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(end)));
+    }
+
+    private static Event createAllDayEvent(LocalDate date, int lengthInDays) {
+        return new Event().setStart(new EventDateTime().setDate(new DateTime(date.toString())))
+                .setEnd(new EventDateTime().setDate(new DateTime(date.plusDays(lengthInDays).toString())));
+    }
+}
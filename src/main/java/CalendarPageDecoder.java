@@ -0,0 +1,201 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventAttendee;
+import com.google.api.services.calendar.model.EventDateTime;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Reads a page of events from the Google Calendar API one token at a time, instead of reading the whole page into
+ * an Events object first. Only the fields requested by CalendarQuickstart are read, everything else is skipped.
+ *
+ * Each event is read into the same Event object, which is handed to the event reader and then reused for the next
+ * event, so the memory used does not grow with the size of the page. The event reader must not keep the Event, its
+ * start and end, or its attendees.
+ */
+public class CalendarPageDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private final Consumer<Event> eventReader;
+    private final Event event = new Event();
+    private final EventDateTime start = new EventDateTime();
+    private final EventDateTime end = new EventDateTime();
+    private final Event.Creator creator = new Event.Creator();
+    private final Event.Organizer organizer = new Event.Organizer();
+    private final ArrayList<EventAttendee> attendees = new ArrayList<>();
+    private final ArrayList<EventAttendee> spareAttendees = new ArrayList<>();
+    private int eventCount;
+
+    /**
+     * Constructor for CalendarPageDecoder objects.
+     *
+     * @param eventReader called with each event of the page in turn.
+     */
+    public CalendarPageDecoder(Consumer<Event> eventReader) {
+        this.eventReader = eventReader;
+    }
+
+    /**
+     * Reads a page of events, handing each one to the event reader.
+     *
+     * @param content the body of the response, which is not closed.
+     * @param charset the character set of the response, or null for UTF-8.
+     * @return a String of the token of the next page, or null if this is the last page.
+     * @throws IOException if the response cannot be read or is not a page of events.
+     */
+    public String decode(InputStream content, Charset charset) throws IOException {
+        String nextPageToken = null;
+        JsonParser parser = charset == null || charset.equals(StandardCharsets.UTF_8)
+                ? JSON_FACTORY.createParser(content)
+                : JSON_FACTORY.createParser(new InputStreamReader(content, charset));
+        try {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals("nextPageToken")) {
+                    nextPageToken = readText(parser);
+                } else if (field.equals("items") && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readEvent(parser);
+                        eventCount++;
+                        eventReader.accept(event);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } finally {
+            parser.close();
+        }
+        return nextPageToken;
+    }
+
+    /**
+     * Getter method for the number of events read by the decoder, over every page it has read.
+     *
+     * @return an int of the number of events.
+     */
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    private void readEvent(JsonParser parser) throws IOException {
+        event.setId(null).setSummary(null).setStart(null).setEnd(null).setAttendees(null).setCreator(null)
+                .setOrganizer(null);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id":
+                    event.setId(readText(parser));
+                    break;
+                case "summary":
+                    event.setSummary(readText(parser));
+                    break;
+                case "start":
+                    event.setStart(readDateTime(parser, value, start));
+                    break;
+                case "end":
+                    event.setEnd(readDateTime(parser, value, end));
+                    break;
+                case "attendees":
+                    event.setAttendees(readAttendees(parser, value));
+                    break;
+                case "creator":
+                    String creatorEmail = readEmail(parser, value);
+                    event.setCreator(creatorEmail == null ? null : creator.setEmail(creatorEmail));
+                    break;
+                case "organizer":
+                    String organizerEmail = readEmail(parser, value);
+                    event.setOrganizer(organizerEmail == null ? null : organizer.setEmail(organizerEmail));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private static EventDateTime readDateTime(JsonParser parser, JsonToken value, EventDateTime dateTime)
+            throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        dateTime.setDate(null).setDateTime(null).setTimeZone(null);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            String text = readText(parser);
+            if (field.equals("dateTime") && text != null) {
+                dateTime.setDateTime(DateTime.parseRfc3339(text));
+            } else if (field.equals("date") && text != null) {
+                dateTime.setDate(DateTime.parseRfc3339(text));
+            } else if (field.equals("timeZone")) {
+                dateTime.setTimeZone(text);
+            }
+        }
+        return dateTime;
+    }
+
+    private ArrayList<EventAttendee> readAttendees(JsonParser parser, JsonToken value) throws IOException {
+        spareAttendees.addAll(attendees);
+        attendees.clear();
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            String email = readEmail(parser, token);
+            if (email != null) {
+                EventAttendee attendee = spareAttendees.isEmpty() ? new EventAttendee()
+                        : spareAttendees.remove(spareAttendees.size() - 1);
+                attendees.add(attendee.setEmail(email));
+            }
+        }
+        return attendees;
+    }
+
+    private static String readEmail(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String email = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            String text = readText(parser);
+            if (field.equals("email")) {
+                email = text;
+            }
+        }
+        return email;
+    }
+
+    /**
+     * Reads the current value as text, skipping it if it is an object or array.
+     */
+    private static String readText(JsonParser parser) throws IOException {
+        String text = parser.getValueAsString();
+        parser.skipChildren();
+        return text;
+    }
+
+    private static void expect(JsonToken token, JsonToken expected) throws IOException {
+        if (token != expected) {
+            throw new IOException("Expected " + expected + " in calendar page but found " + token);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for each page of events loaded from the Google Calendar API. The duration of the event is
+ * the time taken to request, download and read the page.
+ */
+@Name("technocamps.CalendarPage")
+@Label("Calendar Page")
+@Category({"Technocamps", "Ingestion"})
+@Description("A page of events loaded from the Google Calendar API")
+public class CalendarPageEvent extends jdk.jfr.Event {
+
+    @Label("Calendar")
+    String calendarId;
+
+    @Label("Calendar Type")
+    @Description("shared or personal")
+    String calendarType;
+
+    @Label("Event Count")
+    int eventCount;
+
+    @Label("Bytes")
+    @Description("Size of the page after it is decompressed")
+    @DataAmount
+    long bytes;
+
+    @Label("Compressed")
+    @Description("Whether the page was sent compressed with gzip")
+    boolean compressed;
+
+    @Label("Compressed Bytes")
+    @Description("Size of the page as sent, or -1 if it was not compressed or its length was not given")
+    @DataAmount
+    long compressedBytes;
+
+    @Label("Cached")
+    @Description("Whether the page was unchanged and read from the disk cache")
+    boolean cached;
+}
@@ -3,11 +3,24 @@ import com.google.api.client.extensions.java6.auth.oauth2.AuthorizationCodeInsta
 import com.google.api.client.extensions.jetty.auth.oauth2.LocalServerReceiver;
 import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
 import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonErrorContainer;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpStatusCodes;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.client.util.DateTime;
+import com.google.api.client.util.ObjectParser;
 import com.google.api.client.util.store.FileDataStoreFactory;
 import com.google.api.services.calendar.Calendar;
 import com.google.api.services.calendar.CalendarScopes;
@@ -16,19 +29,34 @@ import com.google.api.services.calendar.model.EventAttendee;
 import com.google.api.services.calendar.model.Events;
 
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.text.ParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public class CalendarQuickstart {
 
-    private static final String APPLICATION_NAME = "Google Calendar API Java Quickstart";
+    private static final String APPLICATION_NAME = "Google Calendar API Java Quickstart (gzip)";
     private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
     private static final String TOKENS_DIRECTORY_PATH = "tokens";
 
@@ -39,6 +67,23 @@ public class CalendarQuickstart {
     private static final List<String> SCOPES = Collections.singletonList(CalendarScopes.CALENDAR_READONLY);
     private static final String CREDENTIALS_FILE_PATH = "/credentials.json";
 
+    /**
+     * The most requests sent in one batch request, as recommended for the Google Calendar API.
+     */
+    private static final int MAX_BATCH_SIZE = 50;
+
+    /**
+     * The most shared calendars read at the same time.
+     */
+    private static final int MAX_PARALLEL_CALENDARS = 4;
+
+    /**
+     * The only parts of each event read, so the API leaves out descriptions, reminders, conference details and the
+     * rest of each event.
+     */
+    private static final String EVENT_FIELDS = "nextPageToken,items(id,summary,start,end,attendees/email,"
+            + "creator/email,organizer/email)";
+
     /**
      * Creates an authorized Credential object.
      *
@@ -47,6 +92,15 @@ public class CalendarQuickstart {
      * @throws IOException If the credentials.json file cannot be found.
      */
     private static Credential getCredentials(final NetHttpTransport HTTP_TRANSPORT) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return authorize(HTTP_TRANSPORT);
+        } finally {
+            Metrics.recordLatency("calendar.oauth", start);
+        }
+    }
+
+    private static Credential authorize(final NetHttpTransport HTTP_TRANSPORT) throws IOException {
         // Load client secrets.
         InputStream in = CalendarQuickstart.class.getResourceAsStream(CREDENTIALS_FILE_PATH);
         if (in == null) {
@@ -66,101 +120,293 @@ public class CalendarQuickstart {
 
 
     /**
-     * This method loads events from the Google Calendar API using a starting
-     * when accessed from the Google Calendar API.
+     * Builds an authorized Google Calendar API client.
      *
-     * @throws IOException if error with Google Calendar API.
+     * @return the Calendar client.
+     * @throws IOException if the credentials cannot be read.
      * @throws GeneralSecurityException if error with Google Calendar credentials.
      */
-    public static void getEventsFromCalendar(DateTime startingDate, String calendarEmail) throws IOException, GeneralSecurityException {
-        // Build a new authorized API client service.
+    private static Calendar buildService() throws IOException, GeneralSecurityException {
         final NetHttpTransport HTTP_TRANSPORT = GoogleNetHttpTransport.newTrustedTransport();
-        Calendar service = new Calendar.Builder(HTTP_TRANSPORT, JSON_FACTORY, getCredentials(HTTP_TRANSPORT))
-                .setApplicationName(APPLICATION_NAME)
-                .build();
+        return buildService(HTTP_TRANSPORT, getCredentials(HTTP_TRANSPORT));
+    }
+
+    /**
+     * Builds a Google Calendar API client. Running with -Dcalendar.rootUrl=http://host:port/ sends the requests to
+     * another server, such as a local stub, instead of the Google Calendar API.
+     *
+     * @param transport   the HTTP transport the requests are sent with.
+     * @param credentials sets up each request, such as with the credentials, or null.
+     * @return the Calendar client.
+     */
+    static Calendar buildService(HttpTransport transport, HttpRequestInitializer credentials) {
+        Calendar.Builder builder = new Calendar.Builder(transport, JSON_FACTORY, credentials)
+                .setApplicationName(APPLICATION_NAME);
+        String rootUrl = System.getProperty("calendar.rootUrl");
+        if (rootUrl != null) {
+            builder.setRootUrl(rootUrl);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Loads the events of the shared calendar of each university from the Google Calendar API, reading the
+     * calendars in parallel, and adds them to the list of all events.
+     *
+     * @param startingDate          the earliest date events are loaded from.
+     * @param calendarsByUniversity a Map of university codes to the email addresses of their shared calendars.
+     * @throws IOException if error with Google Calendar API.
+     * @throws GeneralSecurityException if error with Google Calendar credentials.
+     */
+    public static void getEventsFromCalendars(DateTime startingDate, Map<String, String> calendarsByUniversity)
+            throws IOException, GeneralSecurityException {
+        TechnocampsEvent.addEvents(readSharedCalendars(buildService(), startingDate, calendarsByUniversity));
+    }
+
+    /**
+     * Reads the shared calendars of several universities, each calendar on its own thread, up to
+     * MAX_PARALLEL_CALENDARS at once. A calendar shared by several universities is only read once, for all of them.
+     * The requests still go through the shared CalendarRequestExecutor, so together they keep to the rate limit.
+     *
+     * @param service               an authorized Google Calendar API client.
+     * @param startingDate          the earliest date events are loaded from.
+     * @param calendarsByUniversity a Map of university codes to the email addresses of their shared calendars.
+     * @return an ArrayList of the events read, calendar by calendar in the order given.
+     * @throws IOException if any of the calendars cannot be read.
+     */
+    private static ArrayList<TechnocampsEvent> readSharedCalendars(Calendar service, DateTime startingDate,
+                                                                   Map<String, String> calendarsByUniversity)
+            throws IOException {
+        Map<String, List<String>> universitiesByCalendar = new LinkedHashMap<>();
+        calendarsByUniversity.forEach((universityCode, calendarEmail) ->
+                universitiesByCalendar.computeIfAbsent(calendarEmail, key -> new ArrayList<>()).add(universityCode));
+        ExecutorService threads = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(universitiesByCalendar.size(), MAX_PARALLEL_CALENDARS)));
+        try {
+            List<Future<ArrayList<TechnocampsEvent>>> calendars = new ArrayList<>();
+            for (Map.Entry<String, List<String>> calendar : universitiesByCalendar.entrySet()) {
+                calendars.add(threads.submit(() -> {
+                    long start = System.nanoTime();
+                    ArrayList<TechnocampsEvent> events = new ArrayList<>();
+                    readEvents(service, calendar.getKey(), startingDate, "shared",
+                            sharedEventReader(events, calendar.getValue()));
+                    Metrics.recordLatency("calendar.shared." + String.join("+", calendar.getValue()), start);
+                    return events;
+                }));
+            }
+            ArrayList<TechnocampsEvent> events = new ArrayList<>();
+            for (Future<ArrayList<TechnocampsEvent>> calendar : calendars) {
+                events.addAll(calendar.get());
+            }
+            return events;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading the shared calendars");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Could not read the shared calendars", e.getCause());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads every event of a calendar from the Google Calendar API, one page at a time. Each page is decoded as it
+     * is downloaded by CalendarPageDecoder, which hands each event to the event reader without keeping it, so the
+     * memory used does not grow with the size of the page. Only the fields in
+     * EVENT_FIELDS are requested, and responses are compressed with gzip, which the API only does when "gzip" is in
+     * the user agent as well as the Accept-Encoding header. The time taken and the size of each page, read and as
+     * sent when compressed, are recorded in the metrics and as a Flight Recorder event. Pages are requested with the
+     * ETag of the copy in CalendarResponseCache, and pages which have not changed are read from disk.
+     *
+     * @param service       an authorized Google Calendar API client.
+     * @param calendarEmail the email address of the calendar.
+     * @param startingDate  the earliest date events are loaded from.
+     * @param calendarType  a String of the type of calendar, "shared" or "personal", used in the metric names.
+     * @param eventReader   called with each event in the calendar after the starting date, which it must not keep.
+     * @return an int of the number of events in the calendar.
+     * @throws IOException if error with Google Calendar API.
+     */
+    static int readEvents(Calendar service, String calendarEmail, DateTime startingDate,
+                          String calendarType, Consumer<Event> eventReader) throws IOException {
+        Calendar.Events.List request = listRequest(service, calendarEmail, startingDate);
+        CalendarPageDecoder decoder = new CalendarPageDecoder(eventReader);
+        CalendarResponseCache cache = CalendarResponseCache.getShared();
+        String pageToken = null;
+        do {
+            CalendarPageEvent pageEvent = new CalendarPageEvent();
+            pageEvent.begin();
+            long start = System.nanoTime();
+            String url = request.setPageToken(pageToken).buildHttpRequestUrl().build();
+            HttpResponse response = sendPageRequest(request, calendarEmail, cache.getETag(url));
+            InputStream page = response.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_MODIFIED
+                    ? cache.openPage(url) : null;
+            if (response.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_MODIFIED && page == null) {
+                response.disconnect();                      //Removed from the cache since it was requested
+                response = sendPageRequest(request, calendarEmail, null);
+            }
+            boolean cached = page != null;
+            boolean compressed = !cached && "gzip".equalsIgnoreCase(response.getContentEncoding());
+            Long compressedBytes = compressed ? response.getHeaders().getContentLength() : null;
+            CalendarResponseCache.PageWriter pageWriter = cached ? null
+                    : cache.storePage(url, response.getHeaders().getETag(), response.getContent());
+            CountingInputStream content = new CountingInputStream(cached ? page : pageWriter);
+            int eventsBefore = decoder.getEventCount();
+            String nextPageToken;
+            try {
+                nextPageToken = decoder.decode(content, cached ? StandardCharsets.UTF_8
+                        : response.getContentCharset());
+                if (pageWriter != null) {
+                    pageWriter.commit();
+                }
+            } finally {
+                content.close();
+                response.disconnect();
+            }
+            Metrics.recordLatency("calendar.list." + calendarType, start);
+            Metrics.add("calendar.bytes." + calendarType, content.getCount());
+            if (compressed) {
+                Metrics.increment("calendar.gzipPages." + calendarType);
+            }
+            if (compressedBytes != null) {                  //Unknown when the page is sent in chunks
+                Metrics.add("calendar.compressedBytes." + calendarType, compressedBytes);
+            }
+            int eventCount = decoder.getEventCount() - eventsBefore;
+            pageEvent.end();
+            if (pageEvent.shouldCommit()) {
+                pageEvent.calendarId = calendarEmail;
+                pageEvent.calendarType = calendarType;
+                pageEvent.eventCount = eventCount;
+                pageEvent.bytes = content.getCount();
+                pageEvent.compressed = compressed;
+                pageEvent.compressedBytes = compressedBytes == null ? -1 : compressedBytes;
+                pageEvent.cached = cached;
+                pageEvent.commit();
+            }
+            pageToken = nextPageToken;
+        } while (pageToken != null);
+        Metrics.add("calendar.items." + calendarType, decoder.getEventCount());
+        return decoder.getEventCount();
+    }
+
+    /**
+     * Requests a page of events, with If-None-Match if the page is in the cache, through the shared
+     * CalendarRequestExecutor.
+     *
+     * @param request the request for the page, with its page token set.
+     * @param calendarEmail the email address of the calendar.
+     * @param eTag a String of the ETag of the page in the cache, or null to request the page in full.
+     * @return the response, either the page or 304 Not Modified.
+     * @throws IOException if the request fails.
+     */
+    private static HttpResponse sendPageRequest(Calendar.Events.List request, String calendarEmail, String eTag)
+            throws IOException {
+        return CalendarRequestExecutor.getShared().execute(calendarEmail, 1, () -> {
+            HttpRequest httpRequest = request.buildHttpRequest().setThrowExceptionOnExecuteError(false);
+            httpRequest.getHeaders().setIfNoneMatch(eTag);
+            HttpResponse response = httpRequest.execute();
+            if (!response.isSuccessStatusCode()
+                    && response.getStatusCode() != HttpStatusCodes.STATUS_CODE_NOT_MODIFIED) {
+                throw GoogleJsonResponseException.from(JSON_FACTORY, response);
+            }
+            return response;
+        });
+    }
 
-        Events events = service.events().list(calendarEmail)
+    private static Calendar.Events.List listRequest(Calendar service, String calendarEmail, DateTime startingDate)
+            throws IOException {
+        Calendar.Events.List request = service.events().list(calendarEmail)
                 .setMaxResults(2500)
                 .setTimeMin(startingDate)
                 .setOrderBy("startTime")
                 .setSingleEvents(true)
-                .execute();
-        List<Event> items = events.getItems();
-        for (Event event : items) {
-            String eventSummary = event.getSummary();
+                .setFields(EVENT_FIELDS);
+        request.getRequestHeaders().setAcceptEncoding("gzip");
+        return request;
+    }
+
+    /**
+     * Reads the events of a shared calendar and adds those belonging to the universities to the list of all events.
+     * Used for events loaded from the Google Calendar API and for generated calendars.
+     *
+     * @param items           a List of events from the shared calendar.
+     * @param universityCodes the codes of the universities whose events are read, such as "SU".
+     */
+    public static void addEventsFromCalendar(List<Event> items, Collection<String> universityCodes) {
+        TechnocampsEvent.addEvents(parseEventsFromCalendar(items, universityCodes));
+    }
+
+    /**
+     * Reads the events of a shared calendar which belong to the universities, without adding them to the list of
+     * all events.
+     *
+     * @param items           a List of events from the shared calendar.
+     * @param universityCodes the codes of the universities whose events are read, such as "SU".
+     * @return an ArrayList of the events read.
+     */
+    public static ArrayList<TechnocampsEvent> parseEventsFromCalendar(List<Event> items,
+                                                                      Collection<String> universityCodes) {
+        long start = System.nanoTime();
+        ArrayList<TechnocampsEvent> newEvents = new ArrayList<>();
+        Metrics.add("calendar.items.shared", items.size());
+        items.forEach(sharedEventReader(newEvents, universityCodes));
+        Metrics.recordLatency("calendar.parse.shared", start);
+        return newEvents;
+    }
+
+    /**
+     * Creates an event reader for a shared calendar, which adds the events belonging to the universities to a list.
+     *
+     * @param newEvents       the list the events read are added to.
+     * @param universityCodes the codes of the universities whose events are read, such as "SU".
+     * @return the event reader, which does not keep the events it is given.
+     */
+    static Consumer<Event> sharedEventReader(List<TechnocampsEvent> newEvents, Collection<String> universityCodes) {
+        SummaryParser summary = new SummaryParser();
+        return event -> {
+            if (!parseShared(summary, event.getSummary(), universityCodes)) {
+                return;
+            }
             String uniqueId = event.getId();
             DateTime dateOfEvent = event.getStart().getDateTime();
-            if (dateOfEvent != null) {     //This ignores all-day events
-                DateTime startTime = event.getStart().getDateTime();
-                DateTime endTime = event.getEnd().getDateTime();
-                ArrayList<String> eventSummaryList = new ArrayList<>(Arrays.asList(event.getSummary().split(" - ")));
-                if (eventSummaryList.size() == 4) {
-                    eventSummary = eventSummary + " - ?";
-                } else if (eventSummaryList.size() == 3) {
-                    eventSummary = eventSummary + " - ? - ?";
-
-                } else if (eventSummaryList.size() == 2) {
-                    eventSummary = eventSummary + " - ? - ? - ?";
-                }
-                ArrayList<String> eventName = new ArrayList<>(Arrays.asList(eventSummary.split(" - ")));
-                String universityCode = eventName.get(0);
-                if (universityCode.equals("SU")) {
-                    String eventType = eventName.get(1);
-                    String schoolName = eventName.get(2);
-                    String keyStage = eventName.get(3);
-                    String workshop = eventName.get(4);
-                    ArrayList<EventAttendee> deliveryNames = (ArrayList<EventAttendee>) event.getAttendees();
-                    ArrayList<Staff> eventStaff = new ArrayList<>();
-                    if (deliveryNames != null) {
-                        for (EventAttendee attendee : deliveryNames) {
-                            for (Staff staffMember : Staff.getAllStaffList())
-                                if (attendee.getEmail().trim().equals(staffMember.getEmail())) {
-                                    eventStaff.add(staffMember);
-                                }
-                        }
-                    }
-                    TechnocampsEvent.getAllEvents().add(new TechnocampsEvent(uniqueId, dateOfEvent, startTime,
-                            endTime, universityCode, eventType, schoolName, keyStage, workshop,
-                            eventStaff));
-                }
-            } else {
-                String startTimeString = event.getStart().getDate().toStringRfc3339();
-                DateTime startTime = DateTime.parseRfc3339(startTimeString);
+            DateTime startTime;
+            DateTime endTime;
+            if (dateOfEvent != null) {
+                startTime = event.getStart().getDateTime();
+                endTime = event.getEnd().getDateTime();
+            } else {                                        //All-day events only have a date
+                startTime = DateTime.parseRfc3339(event.getStart().getDate().toStringRfc3339());
                 dateOfEvent = startTime;
-                String endTimeString = event.getEnd().getDate().toStringRfc3339();
-                DateTime endTime = DateTime.parseRfc3339(endTimeString);
-                ArrayList<String> eventSummaryList = new ArrayList<>(Arrays.asList(event.getSummary().split(" - ")));
-                if (eventSummaryList.size() == 4) {
-                    eventSummary = eventSummary + " - ?";
-                } else if (eventSummaryList.size() == 3) {
-                    eventSummary = eventSummary + " - ? - ?";
-
-                } else if (eventSummaryList.size() == 2) {
-                    eventSummary = eventSummary + " - ? - ? - ?";
-                }
-                ArrayList<String> eventName = new ArrayList<>(Arrays.asList(eventSummary.split(" - ")));
-                String universityCode = eventName.get(0);
-                if (universityCode.equals("SU")) {
-                    String eventType = eventName.get(1);
-                    String schoolName = eventName.get(2);
-                    String keyStage = eventName.get(3);
-                    String workshop = eventName.get(4);
-                    ArrayList<EventAttendee> deliveryNames = (ArrayList<EventAttendee>) event.getAttendees();
-                    ArrayList<Staff> eventStaff = new ArrayList<>();
-                    if (deliveryNames != null) {
-                        for (EventAttendee attendee : deliveryNames) {
-                            for (Staff staffMember : Staff.getAllStaffList())
-                                if (attendee.getEmail().trim().equals(staffMember.getEmail())) {
-                                    eventStaff.add(staffMember);
-                                }
+                endTime = DateTime.parseRfc3339(event.getEnd().getDate().toStringRfc3339());
+            }
+            List<EventAttendee> deliveryNames = event.getAttendees();
+            ArrayList<Staff> eventStaff = new ArrayList<>();
+            if (deliveryNames != null) {
+                for (EventAttendee attendee : deliveryNames) {
+                    for (Staff staffMember : Staff.getAllStaffList())
+                        if (attendee.getEmail().trim().equals(staffMember.getEmail())) {
+                            eventStaff.add(staffMember);
                         }
-                    }
-                    TechnocampsEvent.getAllEvents().add(new TechnocampsEvent(uniqueId, dateOfEvent, startTime,
-                            endTime, universityCode, eventType, schoolName, keyStage, workshop,
-                            eventStaff));
                 }
             }
+            newEvents.add(new TechnocampsEvent(uniqueId, dateOfEvent, startTime,
+                    endTime, summary.getUniversityCode(), summary.getEventType(), summary.getSchoolName(),
+                    summary.getKeyStage(), summary.getWorkshop(), eventStaff));
+        };
+    }
+
+    private static boolean parseShared(SummaryParser summary, String eventSummary,
+                                       Collection<String> universityCodes) {
+        for (String universityCode : universityCodes) {
+            if (summary.parseShared(eventSummary, universityCode)) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
@@ -171,7 +417,7 @@ public class CalendarQuickstart {
      * @throws GeneralSecurityException if issues with Google API credentials.
      */
     public static void main(String[] args) throws IOException, GeneralSecurityException, ParseException {
-        Main.main();
+        Main.main(args);
     }
 
 
@@ -184,87 +430,434 @@ public class CalendarQuickstart {
      */
     public static void getIndividualUnavailability(DateTime startingDate, Staff staffMember,
                                                    String calendarEmail) throws IOException, GeneralSecurityException {
-        // Build a new authorized API client service.
-        final NetHttpTransport HTTP_TRANSPORT = GoogleNetHttpTransport.newTrustedTransport();
-        Calendar service = new Calendar.Builder(HTTP_TRANSPORT, JSON_FACTORY, getCredentials(HTTP_TRANSPORT))
-                .setApplicationName(APPLICATION_NAME)
-                .build();
+        Calendar service = buildService();
 
-        Events events = service.events().list(calendarEmail)
-                .setMaxResults(2500)
-                .setTimeMin(startingDate)
-                .setOrderBy("startTime")
-                .setSingleEvents(true)
-                .execute();
-        List<Event> items = events.getItems();
-        for (Event event : items) {
-            String eventSummary = event.getSummary();
-            String uniqueId = event.getId();
-            DateTime dateOfEvent = event.getStart().getDateTime();
-            if (dateOfEvent != null) {     //This ignores all-day events
-                DateTime startTime = event.getStart().getDateTime();
-                DateTime endTime = event.getEnd().getDateTime();
-                    ArrayList<String> eventSummaryList = new ArrayList<>(Arrays.asList(event.getSummary().split(" - ")));
-                    if (eventSummaryList.size() == 4) {
-                        eventSummary = eventSummary + " - ?";
-                    } else if (eventSummaryList.size() == 3) {
-                        eventSummary = eventSummary + " - ? - ?";
-
-                    } else if (eventSummaryList.size() == 2) {
-                        eventSummary = eventSummary + " - ? - ? - ?";
-                    }
-                    ArrayList<String> eventName = new ArrayList<>(Arrays.asList(eventSummary.split(":")));
-                    String universityCode = eventName.get(0);
-                    ArrayList<String> staffName = new ArrayList<>(Arrays.asList(staffMember.getName().split(" ")));
-                    String initials = staffName.get(0).substring(0, 1) + staffName.get(1).substring(0, 1);
-                    if (universityCode.equals(initials)) {
-                        universityCode = "SU";
-                        String eventType = eventName.get(1).trim();
-                        String schoolName = "N/A";
-                        String keyStage = "N/A";
-                        String workshop = "N/A";
-                        ArrayList<Staff> eventStaff = new ArrayList<>();
-                        eventStaff.add(staffMember);
-                        TechnocampsEvent.getAllEvents().add(new TechnocampsEvent(uniqueId, dateOfEvent, startTime,
-                                endTime, universityCode, eventType, schoolName, keyStage, workshop,
-                                eventStaff));
+        UnavailabilityScanEvent scanEvent = new UnavailabilityScanEvent();
+        scanEvent.begin();
+        List<TechnocampsEvent> unavailability = new ArrayList<>();
+        int calendarEventCount = readEvents(service, calendarEmail, startingDate, "personal",
+                unavailabilityReader(unavailability, staffMember));
+        TechnocampsEvent.addEvents(unavailability);
+        scanEvent.end();
+        if (scanEvent.shouldCommit()) {
+            scanEvent.staffMember = staffMember.getName();
+            scanEvent.calendarEventCount = calendarEventCount;
+            scanEvent.entriesFound = unavailability.size();
+            scanEvent.commit();
+        }
+    }
+
+    /**
+     * Loads the shared calendars and the personal calendar of every staff member again, without changing the list
+     * of all events, so they can be compared with the events already loaded.
+     *
+     * @param startingDate          the earliest date events are loaded from.
+     * @param calendarsByUniversity a Map of university codes to the email addresses of their shared calendars.
+     * @return an ArrayList of every event read.
+     * @throws IOException if error with Google Calendar API.
+     * @throws GeneralSecurityException if error with Google Calendar credentials.
+     */
+    public static ArrayList<TechnocampsEvent> fetchAllEvents(DateTime startingDate,
+                                                             Map<String, String> calendarsByUniversity)
+            throws IOException, GeneralSecurityException {
+        Calendar service = buildService();
+
+        ArrayList<TechnocampsEvent> events = readSharedCalendars(service, startingDate, calendarsByUniversity);
+        events.addAll(readUnavailabilityInBatches(service, Staff.getAllStaffList(), startingDate, loaded -> {
+        }));
+        return events;
+    }
+
+    /**
+     * Loads the Annual Leave and Unavailability of every staff member from their personal calendars and adds them
+     * to the list of all events. The calendars are requested in batches of up to 50, so the whole roster is loaded
+     * in a few requests rather than one for each staff member.
+     *
+     * @param startingDate the earliest date events are loaded from.
+     * @param staffList    the staff members whose calendars are loaded.
+     * @param progress     called with the number of calendars loaded so far.
+     * @throws IOException if error with Google Calendar API, or a calendar still cannot be loaded when retried.
+     * @throws GeneralSecurityException if error with Google Calendar credentials.
+     */
+    public static void getAllUnavailability(DateTime startingDate, List<Staff> staffList, IntConsumer progress)
+            throws IOException, GeneralSecurityException {
+        TechnocampsEvent.addEvents(readUnavailabilityInBatches(buildService(), staffList, startingDate, progress));
+    }
 
+    /**
+     * Reads the personal calendars of staff members with batch requests. Each batch holds the next page of up to 50
+     * calendars, calendars with more pages are carried on in the next batch, and a calendar whose request fails with
+     * an error which may go away is tried again in the next batch without affecting the others in its batch. The page
+     * in each part of a batch response is decoded by CalendarPageDecoder, the same as pages read one at a time. Every
+     * request goes through the shared CalendarRequestExecutor, so batches are sent no faster than the rate limit.
+     *
+     * @param service      an authorized Google Calendar API client.
+     * @param staffList    the staff members whose calendars are read.
+     * @param startingDate the earliest date events are loaded from.
+     * @param progress     called with the number of calendars read so far.
+     * @return an ArrayList of the Annual Leave and Unavailability read.
+     * @throws IOException if a batch request fails every attempt, or a calendar cannot be read.
+     */
+    static ArrayList<TechnocampsEvent> readUnavailabilityInBatches(Calendar service, List<Staff> staffList,
+                                                                   DateTime startingDate, IntConsumer progress)
+            throws IOException {
+        CalendarRequestExecutor executor = CalendarRequestExecutor.getShared();
+        ArrayList<TechnocampsEvent> newEvents = new ArrayList<>();
+        ArrayDeque<CalendarFetch> pending = new ArrayDeque<>();
+        for (Staff staff : staffList) {
+            pending.add(new CalendarFetch(staff));
+        }
+        List<String> failures = new ArrayList<>();
+        int loaded = 0;
+        while (!pending.isEmpty()) {
+            List<CalendarFetch> queued = new ArrayList<>();
+            while (!pending.isEmpty() && queued.size() < MAX_BATCH_SIZE) {
+                CalendarFetch fetch = pending.poll();
+                try {
+                    executor.checkCircuit(fetch.staff.getEmail());
+                    fetch.answered = false;
+                    queued.add(fetch);
+                } catch (IOException e) {
+                    failures.add(fetch.staff.getName() + " (" + e.getMessage() + ")");
+                }
+            }
+            if (queued.isEmpty()) {
+                break;
+            }
+            long start = System.nanoTime();
+            executor.execute("batch", queued.size(), () -> {
+                //A batch which fails part way through is sent again with only the calendars not yet answered
+                BatchRequest batch = service.batch(service.getRequestFactory().getInitializer());
+                batch.setBatchUrl(new GenericUrl(service.getRootUrl() + "batch/calendar/v3"));
+                for (CalendarFetch fetch : queued) {
+                    if (!fetch.answered) {
+                        HttpRequest partRequest = listRequest(service, fetch.staff.getEmail(), startingDate)
+                                .setPageToken(fetch.pageToken).buildHttpRequest();
+                        partRequest.setParser(new BatchPageParser(partRequest.getParser(), fetch.decoder));
+                        batch.queue(partRequest, Events.class, GoogleJsonErrorContainer.class, fetch);
+                    }
+                }
+                batch.execute();
+                return null;
+            });
+            Metrics.recordLatency("calendar.batch", start);
+            Metrics.add("calendar.batch.parts", queued.size());
+            int retryAttempt = 0;
+            String retryAfter = null;
+            for (CalendarFetch fetch : queued) {
+                if (fetch.error != null) {
+                    Metrics.increment("calendar.batch.failures");
+                    executor.recordFailure(fetch.staff.getEmail());
+                    if (executor.isTransient(fetch.statusCode, fetch.reason)
+                            && ++fetch.attempts < executor.getMaxAttempts()) {
+                        Metrics.increment("calendar.retries." + fetch.statusCode);
+                        retryAttempt = Math.max(retryAttempt, fetch.attempts);
+                        if (fetch.retryAfter != null) {
+                            retryAfter = fetch.retryAfter;
+                        }
+                        fetch.error = null;
+                        pending.add(fetch);
+                    } else {
+                        failures.add(fetch.staff.getName() + " (" + fetch.error + ")");
                     }
+                } else {
+                    executor.recordSuccess(fetch.staff.getEmail());
+                    fetch.attempts = 0;
+                    if (fetch.pageToken != null) {
+                        pending.add(fetch);
+                    } else {
+                        fetch.finish();
+                        newEvents.addAll(fetch.unavailability);
+                        progress.accept(++loaded);
+                    }
+                }
+            }
+            if (retryAttempt > 0) {
+                executor.backOff(retryAttempt, retryAfter);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new IOException("Could not load the calendars of " + String.join(", ", failures));
+        }
+        return newEvents;
+    }
+
+    /**
+     * Reads the events of a staff member's personal calendar and adds their Annual Leave and Unavailability to the
+     * list of all events. Used for events loaded from the Google Calendar API and for generated calendars.
+     *
+     * @param items a List of events from the staff member's personal calendar.
+     * @param staffMember the staff member the calendar belongs to.
+     */
+    public static void addUnavailabilityFromCalendar(List<Event> items, Staff staffMember) {
+        TechnocampsEvent.addEvents(parseUnavailabilityFromCalendar(items, staffMember));
+    }
+
+    /**
+     * Reads the Annual Leave and Unavailability of a staff member's personal calendar, without adding them to the
+     * list of all events. Only entries with the staff member's own initials are read.
+     *
+     * @param items a List of events from the staff member's personal calendar.
+     * @param staffMember the staff member the calendar belongs to.
+     * @return an ArrayList of the events read.
+     */
+    public static ArrayList<TechnocampsEvent> parseUnavailabilityFromCalendar(List<Event> items, Staff staffMember) {
+        long start = System.nanoTime();
+        Metrics.add("calendar.items.personal", items.size());
+        ArrayList<TechnocampsEvent> newEvents = parseUnavailability(items, staffMember);
+        Metrics.recordLatency("calendar.parse.personal", start);
+        return newEvents;
+    }
 
+    /**
+     * Reads the Annual Leave and Unavailability of every staff member from events which may come from any number of
+     * calendars, such as several personal calendars put together, in a single pass. Each "XY: AL" entry belongs to
+     * the staff member with the initials XY. If several staff members share the initials it belongs to the one who
+     * created, organised or is attending the event, and is skipped if that is none or more than one of them.
+     *
+     * @param items a List of events from any calendars.
+     * @return an ArrayList of the events read.
+     */
+    public static ArrayList<TechnocampsEvent> parseUnavailabilityFromCalendars(List<Event> items) {
+        long start = System.nanoTime();
+        Metrics.add("calendar.items.combined", items.size());
+        ArrayList<TechnocampsEvent> newEvents = parseUnavailability(items, null);
+        Metrics.recordLatency("calendar.parse.combined", start);
+        return newEvents;
+    }
+
+    private static ArrayList<TechnocampsEvent> parseUnavailability(List<Event> items, Staff calendarOwner) {
+        ArrayList<TechnocampsEvent> newEvents = new ArrayList<>();
+        items.forEach(unavailabilityReader(newEvents, calendarOwner));
+        return newEvents;
+    }
+
+    /**
+     * Creates an event reader for personal calendars, which adds the Annual Leave and Unavailability entries to a
+     * list.
+     *
+     * @param newEvents     the list the entries read are added to.
+     * @param calendarOwner the staff member whose calendar is read, whose initials the entries must have, or null
+     *                      to find the staff member by the initials of each entry.
+     * @return the event reader, which does not keep the events it is given.
+     */
+    static Consumer<Event> unavailabilityReader(List<TechnocampsEvent> newEvents, Staff calendarOwner) {
+        return event -> {
+            Staff staffMember = calendarOwner;
+            String initials;
+            if (calendarOwner != null) {
+                initials = calendarOwner.getInitials();
             } else {
-                String startTimeString = event.getStart().getDate().toStringRfc3339();
-                DateTime startTime = DateTime.parseRfc3339(startTimeString);
+                initials = SummaryParser.parseUnavailabilityInitials(event.getSummary());
+                staffMember = initials == null ? null : findStaffMemberForEvent(event, initials);
+            }
+            String eventType = staffMember == null ? null
+                    : SummaryParser.parseUnavailabilityType(event.getSummary(), initials);
+            if (eventType == null) {
+                return;
+            }
+            String uniqueId = event.getId();
+            DateTime dateOfEvent = event.getStart().getDateTime();
+            DateTime startTime;
+            DateTime endTime;
+            String universityCode;
+            if (dateOfEvent != null) {
+                startTime = event.getStart().getDateTime();
+                endTime = event.getEnd().getDateTime();
+                universityCode = "SU";
+            } else {                                        //All-day events only have a date
+                startTime = DateTime.parseRfc3339(event.getStart().getDate().toStringRfc3339());
                 dateOfEvent = startTime;
-                String endTimeString = event.getEnd().getDate().toStringRfc3339();
-                DateTime endTime = DateTime.parseRfc3339(endTimeString);
-                    ArrayList<String> eventSummaryList = new ArrayList<>(Arrays.asList(event.getSummary().split(" - ")));
-                    if (eventSummaryList.size() == 4) {
-                        eventSummary = eventSummary + " - ?";
-                    } else if (eventSummaryList.size() == 3) {
-                        eventSummary = eventSummary + " - ? - ?";
-
-                    } else if (eventSummaryList.size() == 2) {
-                        eventSummary = eventSummary + " - ? - ? - ?";
-                    }
-                    ArrayList<String> eventName = new ArrayList<>(Arrays.asList(eventSummary.split(":")));
-                    ArrayList<String> staffName = new ArrayList<>(Arrays.asList(staffMember.getName().split(" ")));
-                    String initials = staffName.get(0).substring(0, 1) + staffName.get(1).substring(0, 1);
-                    String universityCode = eventName.get(0);
-                    if (universityCode.equals(initials)) {
-                        String eventType = eventName.get(1).trim();
-                        String schoolName = "N/A";
-                        String keyStage = "N/A";
-                        String workshop = "N/A";
-                        ArrayList<Staff> eventStaff = new ArrayList<>();
-                        eventStaff.add(staffMember);
-                        TechnocampsEvent.getAllEvents().add(new TechnocampsEvent(uniqueId, dateOfEvent, startTime,
-                                endTime, universityCode, eventType, schoolName, keyStage, workshop,
-                                eventStaff));
-                    }
+                endTime = DateTime.parseRfc3339(event.getEnd().getDate().toStringRfc3339());
+                universityCode = initials;
+            }
+            ArrayList<Staff> eventStaff = new ArrayList<>();
+            eventStaff.add(staffMember);
+            newEvents.add(new TechnocampsEvent(uniqueId, dateOfEvent, startTime,
+                    endTime, universityCode, eventType, "N/A", "N/A", "N/A",
+                    eventStaff));
+        };
+    }
 
+    private static Staff findStaffMemberForEvent(Event event, String initials) {
+        List<Staff> staffWithInitials = Staff.getStaffWithInitials(initials);
+        if (staffWithInitials.size() <= 1) {
+            return staffWithInitials.isEmpty() ? null : staffWithInitials.get(0);
+        }
+        Staff found = null;
+        for (Staff staff : staffWithInitials) {
+            if (isCreatorOrAttendee(event, staff.getEmail())) {
+                if (found != null) {
+                    found = null;
+                    break;
+                }
+                found = staff;
+            }
+        }
+        if (found == null) {
+            Metrics.increment("calendar.unavailability.ambiguous");
+        }
+        return found;
+    }
 
+    private static boolean isCreatorOrAttendee(Event event, String email) {
+        if (event.getCreator() != null && email.equalsIgnoreCase(event.getCreator().getEmail())) {
+            return true;
+        }
+        if (event.getOrganizer() != null && email.equalsIgnoreCase(event.getOrganizer().getEmail())) {
+            return true;
+        }
+        if (event.getAttendees() != null) {
+            for (EventAttendee attendee : event.getAttendees()) {
+                if (attendee.getEmail() != null && email.equalsIgnoreCase(attendee.getEmail().trim())) {
+                    return true;
                 }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The loading of one staff member's personal calendar in batch requests, which receives each page of it.
+     */
+    private static class CalendarFetch extends JsonBatchCallback<Events> {
+
+        private final Staff staff;
+        private final ArrayList<TechnocampsEvent> unavailability = new ArrayList<>();
+        private final CalendarPageDecoder decoder;
+        private final UnavailabilityScanEvent scanEvent = new UnavailabilityScanEvent();
+        private String pageToken;
+        private String error;
+        private int statusCode;
+        private String reason;
+        private String retryAfter;
+        private boolean answered;
+        private int attempts;
+        private int eventCount;
+
+        CalendarFetch(Staff staff) {
+            this.staff = staff;
+            this.decoder = new CalendarPageDecoder(unavailabilityReader(unavailability, staff));
+            scanEvent.begin();
+        }
+
+        @Override
+        public void onSuccess(Events events, HttpHeaders responseHeaders) {
+            Metrics.add("calendar.items.personal", decoder.getEventCount() - eventCount);
+            eventCount = decoder.getEventCount();
+            pageToken = events.getNextPageToken();
+            answered = true;
+        }
+
+        @Override
+        public void onFailure(GoogleJsonError e, HttpHeaders responseHeaders) {
+            error = e.getCode() + " " + e.getMessage();
+            statusCode = e.getCode();
+            reason = CalendarRequestExecutor.getReason(e);
+            retryAfter = responseHeaders == null ? null : responseHeaders.getRetryAfter();
+            answered = true;
+        }
+
+        void finish() {
+            scanEvent.end();
+            if (scanEvent.shouldCommit()) {
+                scanEvent.staffMember = staff.getName();
+                scanEvent.calendarEventCount = eventCount;
+                scanEvent.entriesFound = unavailability.size();
+                scanEvent.commit();
+            }
+        }
+    }
+
+    /**
+     * Parser for the part of a batch response holding a page of a personal calendar. The events of the page are
+     * handed to the event reader of a CalendarPageDecoder as they are decoded, instead of being read into an Events
+     * object, so the Events returned only holds the token of the next page. Errors are read by the parser the request
+     * had before.
+     */
+    static class BatchPageParser implements ObjectParser {
+
+        private final ObjectParser errorParser;
+        private final CalendarPageDecoder decoder;
+
+        /**
+         * Constructor for BatchPageParser objects.
+         *
+         * @param errorParser the parser of the request, used for everything but a page of events.
+         * @param decoder     the CalendarPageDecoder of the calendar, which reads every page of it.
+         */
+        BatchPageParser(ObjectParser errorParser, CalendarPageDecoder decoder) {
+            this.errorParser = errorParser;
+            this.decoder = decoder;
+        }
+
+        @Override
+        public <T> T parseAndClose(InputStream in, Charset charset, Class<T> dataClass) throws IOException {
+            if (dataClass != Events.class) {
+                return errorParser.parseAndClose(in, charset, dataClass);
+            }
+            try {
+                return dataClass.cast(new Events().setNextPageToken(decoder.decode(in, charset)));
+            } finally {
+                in.close();
+            }
+        }
+
+        @Override
+        public Object parseAndClose(InputStream in, Charset charset, Type dataType) throws IOException {
+            return dataType == Events.class ? parseAndClose(in, charset, Events.class)
+                    : errorParser.parseAndClose(in, charset, dataType);
+        }
+
+        @Override
+        public <T> T parseAndClose(Reader reader, Class<T> dataClass) throws IOException {
+            return errorParser.parseAndClose(reader, dataClass);
+        }
+
+        @Override
+        public Object parseAndClose(Reader reader, Type dataType) throws IOException {
+            return errorParser.parseAndClose(reader, dataType);
+        }
+    }
+
+    /**
+     * Input stream which counts the bytes read through it, used to measure the size of API responses.
+     */
+    private static class CountingInputStream extends FilterInputStream {
 
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
             }
+            return b;
         }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
 }
@@ -0,0 +1,157 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the calendars again in the background at a fixed interval, so a window or server left open all day keeps
+ * up with new bookings. Only the events which were added, changed or removed since the last load are applied, as a
+ * single new version of the list of all events, and the date index and workload matrix are updated with the same
+ * changes. The time each refresh takes and the number of events it adds, changes and removes are recorded in Metrics
+ * as refresh.duration, refresh.added, refresh.changed and refresh.removed, and are only printed if a log is given,
+ * so a refresh never writes over the prompts of the console user interface.
+ */
+public class CalendarRefresher {
+
+    private final Callable<List<TechnocampsEvent>> calendarSource;
+    private final PrintStream log;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "calendar-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructor for CalendarRefresher objects which only record each refresh in Metrics.
+     *
+     * @param calendarSource loads every event of the calendars without changing the list of all events.
+     */
+    public CalendarRefresher(Callable<List<TechnocampsEvent>> calendarSource) {
+        this(calendarSource, null);
+    }
+
+    /**
+     * Constructor for CalendarRefresher objects.
+     *
+     * @param calendarSource loads every event of the calendars without changing the list of all events.
+     * @param log            where a summary of each refresh is printed, or null to only record it in Metrics.
+     */
+    public CalendarRefresher(Callable<List<TechnocampsEvent>> calendarSource, PrintStream log) {
+        this.calendarSource = calendarSource;
+        this.log = log;
+    }
+
+    /**
+     * Starts refreshing the calendar in the background. A refresh which fails is counted as refresh.failures and
+     * reported on the standard error stream.
+     *
+     * @param minutes a long of the number of minutes between the end of one refresh and the start of the next.
+     */
+    public void start(long minutes) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                Metrics.increment("refresh.failures");
+                System.err.println("Could not refresh the calendar: " + e);
+            }
+        }, minutes, minutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops refreshing the calendar.
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Loads the calendars and applies the events which have been added, changed or removed to the list of all
+     * events, the date index and the workload matrix.
+     *
+     * @return an int of the number of events added, changed or removed.
+     * @throws Exception if the calendars cannot be loaded.
+     */
+    public int refresh() throws Exception {
+        long start = System.nanoTime();
+        Map<String, TechnocampsEvent> latestEvents = new LinkedHashMap<>();
+        for (TechnocampsEvent event : calendarSource.call()) {
+            latestEvents.put(event.getUniqueID(), event);
+        }
+        VersionedStore.Snapshot<TechnocampsEvent> currentEvents = TechnocampsEvent.getEventStore().getSnapshot();
+
+        List<TechnocampsEvent> addedEvents = new ArrayList<>();
+        Map<String, TechnocampsEvent> changedEvents = new HashMap<>();
+        for (TechnocampsEvent event : latestEvents.values()) {
+            TechnocampsEvent currentEvent = currentEvents.get(event.getUniqueID());
+            if (currentEvent == null) {
+                addedEvents.add(event);
+            } else if (!currentEvent.hasSameDetails(event)) {
+                changedEvents.put(event.getUniqueID(), event);
+            }
+        }
+        Set<String> removedIDs = new HashSet<>();
+        for (TechnocampsEvent event : currentEvents.getItems()) {
+            if (!latestEvents.containsKey(event.getUniqueID())) {
+                removedIDs.add(event.getUniqueID());
+            }
+        }
+
+        int changes = addedEvents.size() + changedEvents.size() + removedIDs.size();
+        if (changes > 0) {
+            List<TechnocampsEvent> removedFromIndex = new ArrayList<>();
+            List<TechnocampsEvent> addedToIndex = new ArrayList<>();
+            VersionedStore.Snapshot<TechnocampsEvent> previous = TechnocampsEvent.getEventStore().getSnapshot();
+            VersionedStore.Snapshot<TechnocampsEvent> next = TechnocampsEvent.getEventStore().update(events -> {
+                removedFromIndex.clear();                    //The update is run again if another thread got first
+                addedToIndex.clear();
+                Set<String> storedIDs = new HashSet<>();
+                ListIterator<TechnocampsEvent> eventIterator = events.listIterator();
+                while (eventIterator.hasNext()) {
+                    TechnocampsEvent event = eventIterator.next();
+                    TechnocampsEvent changedEvent = changedEvents.get(event.getUniqueID());
+                    if (changedEvent != null) {
+                        removedFromIndex.add(event);
+                        addedToIndex.add(changedEvent);
+                        eventIterator.set(changedEvent);
+                    } else if (removedIDs.contains(event.getUniqueID())) {
+                        removedFromIndex.add(event);
+                        eventIterator.remove();
+                        continue;
+                    }
+                    storedIDs.add(event.getUniqueID());
+                }
+                for (TechnocampsEvent event : addedEvents) {
+                    if (storedIDs.add(event.getUniqueID())) {     //Skips events another thread has just added
+                        addedToIndex.add(event);
+                        events.add(event);
+                    }
+                }
+            });
+            if (next.getVersion() == previous.getVersion() + 1) {
+                EventDateIndex.applyChanges(previous.getVersion(), next.getVersion(), removedFromIndex, addedToIndex);
+                WorkloadMatrix.applyChanges(previous.getVersion(), next.getVersion(), removedFromIndex, addedToIndex);
+            }
+        }
+
+        Metrics.recordLatency("refresh.duration", start);
+        Metrics.add("refresh.added", addedEvents.size());
+        Metrics.add("refresh.changed", changedEvents.size());
+        Metrics.add("refresh.removed", removedIDs.size());
+        if (log != null) {
+            log.printf("Calendar refreshed in %d ms: %d added, %d changed, %d removed.%n",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), addedEvents.size(),
+                    changedEvents.size(), removedIDs.size());
+        }
+        return changes;
+    }
+}
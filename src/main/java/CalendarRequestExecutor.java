@@ -0,0 +1,287 @@
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponseException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends requests to the Google Calendar API without going over its quota and without giving up on the first error.
+ * <ul>
+ * <li>Requests are limited by a token bucket shared by every thread, holding up to a second of requests, which
+ * refills at -Dcalendar.requestsPerSecond, 10 by default. Each request in a batch request takes its own token.</li>
+ * <li>Requests which fail with a network error, a server error, 429 Too Many Requests or a rate limit 403 are tried
+ * again up to -Dcalendar.maxAttempts times, 5 by default, after a random wait which doubles with each attempt, or
+ * after the time given by the Retry-After header.</li>
+ * <li>A calendar whose requests fail five times in a row is not requested again for a minute, so one broken
+ * calendar does not use up the quota of the rest.</li>
+ * </ul>
+ */
+public class CalendarRequestExecutor {
+
+    private static final CalendarRequestExecutor shared = new CalendarRequestExecutor(
+            Double.parseDouble(System.getProperty("calendar.requestsPerSecond", "10")),
+            Integer.getInteger("calendar.maxAttempts", 5), 500, 32000, 5, 60000);
+
+    private final double requestsPerSecond;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final int failuresToOpen;
+    private final long openMillis;
+    private final ConcurrentHashMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * Constructor for CalendarRequestExecutor objects.
+     *
+     * @param requestsPerSecond a double of the number of requests allowed each second.
+     * @param maxAttempts       an int of the number of times a request is tried before giving up.
+     * @param baseDelayMillis   a long of the longest wait before the first retry, in milliseconds.
+     * @param maxDelayMillis    a long of the longest wait before any retry, in milliseconds.
+     * @param failuresToOpen    an int of the number of failures in a row after which a calendar is not requested.
+     * @param openMillis        a long of how long a calendar is not requested for, in milliseconds.
+     */
+    public CalendarRequestExecutor(double requestsPerSecond, int maxAttempts, long baseDelayMillis,
+                                   long maxDelayMillis, int failuresToOpen, long openMillis) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.failuresToOpen = failuresToOpen;
+        this.openMillis = openMillis;
+        this.tokens = Math.max(1, requestsPerSecond);
+    }
+
+    /**
+     * Getter method for the executor shared by every request to the Google Calendar API.
+     *
+     * @return the shared CalendarRequestExecutor.
+     */
+    public static CalendarRequestExecutor getShared() {
+        return shared;
+    }
+
+    /**
+     * A request to the Google Calendar API which can be sent again if it fails.
+     *
+     * @param <T> the type of the response.
+     */
+    public interface Request<T> {
+        T send() throws IOException;
+    }
+
+    /**
+     * Sends a request, waiting for the rate limit and trying again if it fails with an error which may go away.
+     *
+     * @param calendarId a String of the calendar requested, used for its circuit breaker.
+     * @param requests   an int of the number of requests sent, more than one for a batch request.
+     * @param request    the request to send.
+     * @param <T>        the type of the response.
+     * @return the response.
+     * @throws IOException if the request fails with an error which will not go away, fails every attempt, or the
+     *                     calendar has failed too often recently.
+     */
+    public <T> T execute(String calendarId, int requests, Request<T> request) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            checkCircuit(calendarId);
+            acquire(requests);
+            try {
+                T response = request.send();
+                recordSuccess(calendarId);
+                return response;
+            } catch (HttpResponseException e) {
+                recordFailure(calendarId);
+                if (!isTransient(e.getStatusCode(), getReason(e)) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                Metrics.increment("calendar.retries." + e.getStatusCode());
+                backOff(attempt, e.getHeaders().getRetryAfter());
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                recordFailure(calendarId);
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                Metrics.increment("calendar.retries.io");
+                backOff(attempt, null);
+            }
+        }
+    }
+
+    private static String getReason(HttpResponseException e) {
+        if (e instanceof GoogleJsonResponseException) {
+            return getReason(((GoogleJsonResponseException) e).getDetails());
+        }
+        return null;
+    }
+
+    /**
+     * Gets the reason given for an error by the Google Calendar API, such as "rateLimitExceeded".
+     *
+     * @param error the error, which may be null.
+     * @return a String of the reason, or null if none was given.
+     */
+    public static String getReason(GoogleJsonError error) {
+        if (error == null || error.getErrors() == null || error.getErrors().isEmpty()) {
+            return null;
+        }
+        return error.getErrors().get(0).getReason();
+    }
+
+    /**
+     * Checks whether a request which failed may succeed if it is tried again.
+     *
+     * @param statusCode an int of the HTTP status code of the response.
+     * @param reason     a String of the reason given by the Google Calendar API, or null.
+     * @return true for server errors, 408, 429 and rate limit 403 responses.
+     */
+    public boolean isTransient(int statusCode, String reason) {
+        if (statusCode == 403) {
+            return "rateLimitExceeded".equals(reason) || "userRateLimitExceeded".equals(reason);
+        }
+        return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+
+    /**
+     * Getter method for the number of times a request is tried before giving up.
+     *
+     * @return an int of the number of attempts.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Waits before trying a request again. The wait is the number of seconds in the Retry-After header if there is
+     * one, otherwise a random time up to a limit which doubles with each attempt ("full jitter"), so that many
+     * clients failing together do not all retry together.
+     *
+     * @param attempt    an int of the number of attempts made so far.
+     * @param retryAfter a String of the Retry-After header of the response, or null.
+     * @throws InterruptedIOException if the thread is interrupted while waiting.
+     */
+    public void backOff(int attempt, String retryAfter) throws InterruptedIOException {
+        long delayMillis = -1;
+        if (retryAfter != null) {
+            try {
+                delayMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) {
+                //An HTTP date, which the API does not send, is treated as no header
+            }
+        }
+        if (delayMillis < 0) {
+            long limit = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+            delayMillis = ThreadLocalRandom.current().nextLong(limit + 1);
+        }
+        long start = System.nanoTime();
+        sleep(Math.min(delayMillis, maxDelayMillis));
+        Metrics.recordLatency("calendar.backoff", start);
+    }
+
+    /**
+     * Waits until the rate limit allows more requests to be sent.
+     *
+     * @param requests an int of the number of requests about to be sent.
+     * @throws InterruptedIOException if the thread is interrupted while waiting.
+     */
+    public void acquire(int requests) throws InterruptedIOException {
+        if (requests <= 0 || requestsPerSecond <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        long waitMillis;
+        synchronized (this) {
+            long now = System.nanoTime();
+            double capacity = Math.max(requests, requestsPerSecond);
+            tokens = Math.min(capacity, tokens + (now - lastRefill) / 1e9 * requestsPerSecond);
+            lastRefill = now;
+            tokens -= requests;                         //Taken now, so later requests queue behind this one
+            waitMillis = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / requestsPerSecond * 1000);
+        }
+        if (waitMillis > 0) {
+            sleep(waitMillis);
+            Metrics.recordLatency("calendar.rateLimit.wait", start);
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to request the calendar");
+        }
+    }
+
+    /**
+     * Checks that a calendar may be requested.
+     *
+     * @param calendarId a String of the calendar.
+     * @throws IOException if the calendar has failed too often recently.
+     */
+    public void checkCircuit(String calendarId) throws IOException {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(calendarId);
+        if (circuitBreaker != null && circuitBreaker.isOpen()) {
+            Metrics.increment("calendar.circuit.rejected");
+            throw new IOException("Not requesting " + calendarId + " after " + failuresToOpen
+                    + " failures in a row, trying again in " + circuitBreaker.getSecondsUntilClosed() + "s");
+        }
+    }
+
+    /**
+     * Records a successful request of a calendar, closing its circuit breaker.
+     *
+     * @param calendarId a String of the calendar.
+     */
+    public void recordSuccess(String calendarId) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(calendarId);
+        if (circuitBreaker != null) {
+            circuitBreaker.recordSuccess();
+        }
+    }
+
+    /**
+     * Records a failed request of a calendar, opening its circuit breaker after too many failures in a row.
+     *
+     * @param calendarId a String of the calendar.
+     */
+    public void recordFailure(String calendarId) {
+        circuitBreakers.computeIfAbsent(calendarId, key -> new CircuitBreaker()).recordFailure();
+    }
+
+    /**
+     * Counts the failures in a row of requests to one calendar. Once it is open the calendar is not requested until
+     * openMillis have passed, then one request is let through, which closes it again if it succeeds.
+     */
+    private class CircuitBreaker {
+
+        private int failuresInARow;
+        private long openUntil;
+
+        synchronized boolean isOpen() {
+            return failuresInARow >= failuresToOpen && System.nanoTime() - openUntil < 0;
+        }
+
+        synchronized long getSecondsUntilClosed() {
+            return Math.max(0, TimeUnit.NANOSECONDS.toSeconds(openUntil - System.nanoTime()));
+        }
+
+        synchronized void recordSuccess() {
+            failuresInARow = 0;
+        }
+
+        synchronized void recordFailure() {
+            failuresInARow++;
+            if (failuresInARow >= failuresToOpen) {
+                openUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(openMillis);
+                Metrics.increment("calendar.circuit.opened");
+            }
+        }
+    }
+}
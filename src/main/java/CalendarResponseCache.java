@@ -0,0 +1,346 @@
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the pages of events downloaded from the Google Calendar API on disk, with the ETag they were sent with, so a
+ * calendar can be requested again with If-None-Match and, if it has not changed, read from disk when the API answers
+ * 304 Not Modified instead of sending the whole page again.
+ *
+ * Pages are kept in the -Dcalendar.cacheDir directory, "cache" by default, one file per request URL, which holds
+ * the calendar, the page token and the rest of the query. When the pages come to more than
+ * -Dcalendar.cacheMegabytes, 64 by default, the pages used least recently are deleted. An empty directory or a
+ * size of 0 turns the cache off. Problems writing the cache are counted but never stop a calendar being read.
+ */
+public class CalendarResponseCache {
+
+    private static final String PAGE_SUFFIX = ".page";
+    private static final CalendarResponseCache shared = new CalendarResponseCache(
+            Paths.get(System.getProperty("calendar.cacheDir", "cache")),
+            Long.getLong("calendar.cacheMegabytes", 64L) * 1024 * 1024);
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> pageSizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private boolean loaded;
+
+    /**
+     * Constructor for CalendarResponseCache objects. The directory is not read or created until the cache is used.
+     *
+     * @param directory the directory the pages are kept in.
+     * @param maxBytes  a long of the most bytes of pages kept, 0 turns the cache off.
+     */
+    public CalendarResponseCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = directory.toString().isEmpty() ? 0 : maxBytes;
+    }
+
+    /**
+     * Getter method for the cache shared by every request to the Google Calendar API.
+     *
+     * @return the shared CalendarResponseCache.
+     */
+    public static CalendarResponseCache getShared() {
+        return shared;
+    }
+
+    /**
+     * Getter method for the ETag of a page in the cache.
+     *
+     * @param url a String of the URL the page was requested with.
+     * @return a String of the ETag to send in If-None-Match, or null if the page is not in the cache.
+     */
+    public String getETag(String url) {
+        if (!isCached(url)) {
+            return null;
+        }
+        try (InputStream page = Files.newInputStream(getPath(url))) {
+            return readHeader(page);
+        } catch (IOException e) {
+            Metrics.increment("calendar.cache.errors");
+            return null;
+        }
+    }
+
+    /**
+     * Opens a page in the cache after the API has answered 304 Not Modified, marking it as used most recently.
+     *
+     * @param url a String of the URL the page was requested with.
+     * @return an InputStream of the page as the API sent it, or null if the page is no longer in the cache.
+     */
+    public InputStream openPage(String url) {
+        if (!isCached(url)) {
+            return null;
+        }
+        Path path = getPath(url);
+        try {
+            InputStream page = new BufferedInputStream(Files.newInputStream(path));
+            readHeader(page);
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            Metrics.increment("calendar.cache.hits");
+            return page;
+        } catch (IOException e) {
+            Metrics.increment("calendar.cache.errors");
+            remove(getFileName(url));
+            return null;
+        }
+    }
+
+    /**
+     * Copies a page to the cache as it is read, for a page the API has sent in full. The page is only added to the
+     * cache once commit() is called after the whole page has been read, so a page read part way is never kept.
+     *
+     * @param url     a String of the URL the page was requested with.
+     * @param eTag    a String of the ETag the page was sent with, or null if it has none.
+     * @param content the body of the response.
+     * @return a PageWriter to read the page through.
+     */
+    public PageWriter storePage(String url, String eTag, InputStream content) {
+        Metrics.increment("calendar.cache.misses");
+        OutputStream copy = null;
+        Path temporary = null;
+        if (maxBytes > 0 && eTag != null && eTag.indexOf('\n') < 0) {
+            try {
+                load();
+                temporary = Files.createTempFile(directory, "page", ".tmp");
+                copy = Files.newOutputStream(temporary);
+                copy.write((eTag + "\n").getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                Metrics.increment("calendar.cache.errors");
+                deleteQuietly(temporary);
+                copy = null;
+            }
+        }
+        return new PageWriter(content, url, copy, temporary);
+    }
+
+    private synchronized boolean isCached(String url) {
+        if (maxBytes <= 0) {
+            return false;
+        }
+        try {
+            load();
+        } catch (IOException e) {
+            Metrics.increment("calendar.cache.errors");
+            return false;
+        }
+        return pageSizes.get(getFileName(url)) != null;
+    }
+
+    /**
+     * Reads the pages already in the directory the first time the cache is used, oldest first.
+     */
+    private synchronized void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<Path> pages = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (file.getFileName().toString().endsWith(PAGE_SUFFIX)) {
+                    pages.add(file);
+                } else if (file.getFileName().toString().endsWith(".tmp")) {
+                    deleteQuietly(file);                //Left by a page which was never finished
+                }
+            }
+        }
+        pages.sort((a, b) -> getLastModified(a).compareTo(getLastModified(b)));
+        for (Path page : pages) {
+            long size = Files.size(page);
+            pageSizes.put(page.getFileName().toString(), size);
+            totalBytes += size;
+        }
+        loaded = true;
+        evict();
+    }
+
+    private synchronized void add(String fileName, Path temporary) throws IOException {
+        Files.move(temporary, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+        Long oldSize = pageSizes.put(fileName, Files.size(directory.resolve(fileName)));
+        totalBytes += pageSizes.get(fileName) - (oldSize == null ? 0 : oldSize);
+        Metrics.increment("calendar.cache.stored");
+        evict();
+    }
+
+    private synchronized void remove(String fileName) {
+        Long size = pageSizes.remove(fileName);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        deleteQuietly(directory.resolve(fileName));
+    }
+
+    private synchronized void evict() {
+        Iterator<Map.Entry<String, Long>> leastRecentlyUsed = pageSizes.entrySet().iterator();
+        while (totalBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+            Map.Entry<String, Long> page = leastRecentlyUsed.next();
+            totalBytes -= page.getValue();
+            leastRecentlyUsed.remove();
+            deleteQuietly(directory.resolve(page.getKey()));
+            Metrics.increment("calendar.cache.evictions");
+        }
+    }
+
+    /**
+     * Getter method for the size of the pages in the cache.
+     *
+     * @return a long of the number of bytes.
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private Path getPath(String url) {
+        return directory.resolve(getFileName(url));
+    }
+
+    private static String getFileName(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder fileName = new StringBuilder();
+            for (byte b : digest) {
+                fileName.append(String.format("%02x", b));
+            }
+            return fileName.append(PAGE_SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the ETag line at the start of a page file, leaving the stream at the start of the page.
+     */
+    private static String readHeader(InputStream page) throws IOException {
+        StringBuilder eTag = new StringBuilder();
+        int b;
+        while ((b = page.read()) != '\n') {
+            if (b == -1) {
+                throw new IOException("Cached calendar page has no ETag");
+            }
+            eTag.append((char) b);
+        }
+        return eTag.toString();
+    }
+
+    private static FileTime getLastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Metrics.increment("calendar.cache.errors");
+        }
+    }
+
+    /**
+     * Input stream which copies a page to a temporary file as it is read, and adds it to the cache on commit().
+     */
+    public class PageWriter extends FilterInputStream {
+
+        private final String url;
+        private final Path temporary;
+        private OutputStream copy;
+
+        private PageWriter(InputStream content, String url, OutputStream copy, Path temporary) {
+            super(content);
+            this.url = url;
+            this.copy = copy;
+            this.temporary = temporary;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                write(b, off, read);
+            }
+            return read;
+        }
+
+        private void write(byte[] b, int off, int len) {
+            if (copy == null) {
+                return;
+            }
+            try {
+                copy.write(b, off, len);
+            } catch (IOException e) {
+                Metrics.increment("calendar.cache.errors");
+                abandon();
+            }
+        }
+
+        /**
+         * Adds the page to the cache, once the whole page has been read.
+         */
+        public void commit() {
+            if (copy == null) {
+                return;
+            }
+            try {
+                while (read() != -1) {
+                    //Anything after the end of the page, so the copy is the whole response
+                }
+                copy.close();
+                copy = null;
+                add(getFileName(url), temporary);
+            } catch (IOException e) {
+                Metrics.increment("calendar.cache.errors");
+                abandon();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            abandon();
+            super.close();
+        }
+
+        private void abandon() {
+            if (copy != null) {
+                try {
+                    copy.close();
+                } catch (IOException e) {
+                    Metrics.increment("calendar.cache.errors");
+                }
+                copy = null;
+            }
+            deleteQuietly(temporary);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An index of the workshop, club, Technoteach, AL and Unavailable events by date, so the events of a month or any
+ * range of dates can be found without going through every event in the calendar. An index never changes once it
+ * is built; getCurrent() gives the index of the current version of the list of all events.
+ *
+ * The index is split into partitions, one for the events of each university, named by its university code, and one
+ * for the AL and Unavailable of staff members. A query of one partition only looks at the dates of that partition,
+ * so a university with a busy calendar does not slow down the queries of another, and a change to the calendar of
+ * one university only copies the dates of its own partition. Queries without a partition look at every partition.
+ */
+public class EventDateIndex {
+
+    /**
+     * The partition of the AL and Unavailable read from the personal calendars of staff members.
+     */
+    public static final String UNAVAILABILITY_PARTITION = "staff";
+
+    private static final AtomicReference<EventDateIndex> current = new AtomicReference<>();
+
+    private final LinkedHashMap<String, TreeMap<LocalDate, List<TechnocampsEvent>>> partitions;
+    private final long version;
+    private int size;
+
+    /**
+     * Constructor for EventDateIndex objects.
+     *
+     * @param events  the events to index.
+     * @param version a long of the version of the list of all events the events come from.
+     */
+    private EventDateIndex(Collection<TechnocampsEvent> events, long version) {
+        long start = System.nanoTime();
+        this.partitions = new LinkedHashMap<>();
+        this.version = version;
+        for (TechnocampsEvent event : events) {
+            if (isIndexed(event)) {
+                partitions.computeIfAbsent(getPartition(event), key -> new TreeMap<>())
+                        .computeIfAbsent(getDate(event), key -> new ArrayList<>()).add(event);
+                size++;
+            }
+        }
+        Metrics.recordLatency("index.build", start);
+    }
+
+    private EventDateIndex(LinkedHashMap<String, TreeMap<LocalDate, List<TechnocampsEvent>>> partitions,
+                           long version, int size) {
+        this.partitions = partitions;
+        this.version = version;
+        this.size = size;
+    }
+
+    /**
+     * Gets the index of the current version of the list of all events, building it if the events have changed
+     * since it was last built.
+     *
+     * @return the EventDateIndex of the current events.
+     */
+    public static EventDateIndex getCurrent() {
+        VersionedStore.Snapshot<TechnocampsEvent> snapshot = TechnocampsEvent.getEventStore().getSnapshot();
+        EventDateIndex index = current.get();
+        if (index != null && index.version == snapshot.getVersion()) {
+            return index;
+        }
+        EventDateIndex newIndex = new EventDateIndex(snapshot.getItems(), snapshot.getVersion());
+        while (index == null || index.version < newIndex.version) {
+            if (current.compareAndSet(index, newIndex)) {
+                break;
+            }
+            index = current.get();
+        }
+        return newIndex;
+    }
+
+    /**
+     * Updates the current index with the changes which made one version of the list of all events into the next,
+     * without indexing all of the events again. Only the dates of the changed events are copied, in the partitions
+     * of the changed events. If the current index is not of the previous version it is left to be built again by
+     * getCurrent().
+     *
+     * @param previousVersion a long of the version the changes were made to.
+     * @param newVersion      a long of the version the changes made.
+     * @param removedEvents   the events removed, including the old versions of changed events.
+     * @param addedEvents     the events added, including the new versions of changed events.
+     */
+    public static void applyChanges(long previousVersion, long newVersion, Collection<TechnocampsEvent> removedEvents,
+                                    Collection<TechnocampsEvent> addedEvents) {
+        long start = System.nanoTime();
+        EventDateIndex index = current.get();
+        if (index == null || index.version != previousVersion) {
+            return;
+        }
+        LinkedHashMap<String, TreeMap<LocalDate, List<TechnocampsEvent>>> partitions =
+                new LinkedHashMap<>(index.partitions);
+        Map<String, Set<LocalDate>> copiedDates = new HashMap<>();
+        int size = index.size;
+        for (TechnocampsEvent event : removedEvents) {
+            String partition = getPartition(event);
+            LocalDate date = getDate(event);
+            if (isIndexed(event) && partitions.containsKey(partition)
+                    && partitions.get(partition).containsKey(date)) {
+                List<TechnocampsEvent> eventsOnDate = copyDate(partitions, copiedDates, partition, date);
+                if (eventsOnDate.remove(event)) {
+                    size--;
+                }
+                if (eventsOnDate.isEmpty()) {
+                    partitions.get(partition).remove(date);
+                }
+            }
+        }
+        for (TechnocampsEvent event : addedEvents) {
+            if (isIndexed(event)) {
+                copyDate(partitions, copiedDates, getPartition(event), getDate(event)).add(event);
+                size++;
+            }
+        }
+        current.compareAndSet(index, new EventDateIndex(partitions, newVersion, size));
+        Metrics.recordLatency("index.applyChanges", start);
+    }
+
+    /**
+     * Copies a date of a partition before it is changed, and the partition itself the first time one of its dates
+     * is copied, so the previous index is left as it was.
+     */
+    private static List<TechnocampsEvent> copyDate(
+            LinkedHashMap<String, TreeMap<LocalDate, List<TechnocampsEvent>>> partitions,
+            Map<String, Set<LocalDate>> copiedDates, String partition, LocalDate date) {
+        Set<LocalDate> copiedDatesOfPartition = copiedDates.get(partition);
+        if (copiedDatesOfPartition == null) {
+            copiedDatesOfPartition = new HashSet<>();
+            copiedDates.put(partition, copiedDatesOfPartition);
+            TreeMap<LocalDate, List<TechnocampsEvent>> eventsByDate = partitions.get(partition);
+            partitions.put(partition, eventsByDate == null ? new TreeMap<>() : new TreeMap<>(eventsByDate));
+        }
+        TreeMap<LocalDate, List<TechnocampsEvent>> eventsByDate = partitions.get(partition);
+        List<TechnocampsEvent> eventsOnDate = eventsByDate.get(date);
+        if (copiedDatesOfPartition.add(date) || eventsOnDate == null) {   //Or emptied and removed by a change
+            eventsOnDate = eventsOnDate == null ? new ArrayList<>() : new ArrayList<>(eventsOnDate);
+            eventsByDate.put(date, eventsOnDate);
+        }
+        return eventsOnDate;
+    }
+
+    private static boolean isIndexed(TechnocampsEvent event) {
+        String eventType = event.getEventType();
+        return eventType.equals("Workshop") || eventType.equals("Technoclub") || eventType.equals("Technoteach")
+                || eventType.equals("AL") || eventType.equals("Unavailable");
+    }
+
+    /**
+     * Gets the partition of an event, UNAVAILABILITY_PARTITION for AL and Unavailable, otherwise the code of the
+     * university it belongs to.
+     *
+     * @param event the event.
+     * @return a String of the name of the partition.
+     */
+    public static String getPartition(TechnocampsEvent event) {
+        String eventType = event.getEventType();
+        if (eventType.equals("AL") || eventType.equals("Unavailable")) {
+            return UNAVAILABILITY_PARTITION;
+        }
+        return event.getUniversityCode();
+    }
+
+    private static LocalDate getDate(TechnocampsEvent event) {
+        return LocalDate.parse(event.getDateOfEvent().toStringRfc3339().substring(0, 10));
+    }
+
+    private static NavigableMap<LocalDate, List<TechnocampsEvent>> getRange(
+            NavigableMap<LocalDate, List<TechnocampsEvent>> eventsByDate, LocalDate startDate, LocalDate endDate) {
+        if (startDate != null) {
+            eventsByDate = eventsByDate.tailMap(startDate, true);
+        }
+        if (endDate != null) {
+            eventsByDate = eventsByDate.headMap(endDate, true);
+        }
+        return eventsByDate;
+    }
+
+    /**
+     * Gets the events of every partition on or after a start date, and on or before an end date if one is given.
+     *
+     * @param startDate the first date, or null for the start of the calendar.
+     * @param endDate   the last date, or null for an open end date.
+     * @return an ArrayList of the events in date order.
+     */
+    public ArrayList<TechnocampsEvent> getEventsBetween(LocalDate startDate, LocalDate endDate) {
+        List<Map.Entry<LocalDate, List<TechnocampsEvent>>> dates = new ArrayList<>();
+        for (TreeMap<LocalDate, List<TechnocampsEvent>> eventsByDate : partitions.values()) {
+            dates.addAll(getRange(eventsByDate, startDate, endDate).entrySet());
+        }
+        if (partitions.size() > 1) {
+            dates.sort(Map.Entry.comparingByKey());     //Stable, so each date keeps the order of the partitions
+        }
+        ArrayList<TechnocampsEvent> events = new ArrayList<>();
+        for (Map.Entry<LocalDate, List<TechnocampsEvent>> eventsOnDate : dates) {
+            events.addAll(eventsOnDate.getValue());
+        }
+        return events;
+    }
+
+    /**
+     * Gets the events of one partition on or after a start date, and on or before an end date if one is given.
+     *
+     * @param partition a String of the university code, or UNAVAILABILITY_PARTITION.
+     * @param startDate the first date, or null for the start of the calendar.
+     * @param endDate   the last date, or null for an open end date.
+     * @return an ArrayList of the events in date order, empty if the partition has no events.
+     */
+    public ArrayList<TechnocampsEvent> getEventsBetween(String partition, LocalDate startDate, LocalDate endDate) {
+        ArrayList<TechnocampsEvent> events = new ArrayList<>();
+        TreeMap<LocalDate, List<TechnocampsEvent>> eventsByDate = partitions.get(partition);
+        if (eventsByDate != null) {
+            for (List<TechnocampsEvent> eventsOnDate : getRange(eventsByDate, startDate, endDate).values()) {
+                events.addAll(eventsOnDate);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Gets the events in a month.
+     *
+     * @param month the month to get the events of.
+     * @return an ArrayList of the events in date order.
+     */
+    public ArrayList<TechnocampsEvent> getEventsInMonth(YearMonth month) {
+        return getEventsBetween(month.atDay(1), month.atEndOfMonth());
+    }
+
+    /**
+     * Finds the first month on or after the given month which has any events, used for paging forwards.
+     *
+     * @param month the month to start from.
+     * @return the month, or null if there are no more events.
+     */
+    public YearMonth getNextMonthWithEvents(YearMonth month) {
+        LocalDate next = null;
+        for (TreeMap<LocalDate, List<TechnocampsEvent>> eventsByDate : partitions.values()) {
+            LocalDate date = eventsByDate.ceilingKey(month.atDay(1));
+            if (date != null && (next == null || date.isBefore(next))) {
+                next = date;
+            }
+        }
+        return next == null ? null : YearMonth.from(next);
+    }
+
+    /**
+     * Finds the last month on or before the given month which has any events, used for paging backwards.
+     *
+     * @param month the month to start from.
+     * @return the month, or null if there are no earlier events.
+     */
+    public YearMonth getPreviousMonthWithEvents(YearMonth month) {
+        LocalDate previous = null;
+        for (TreeMap<LocalDate, List<TechnocampsEvent>> eventsByDate : partitions.values()) {
+            LocalDate date = eventsByDate.floorKey(month.atEndOfMonth());
+            if (date != null && (previous == null || date.isAfter(previous))) {
+                previous = date;
+            }
+        }
+        return previous == null ? null : YearMonth.from(previous);
+    }
+
+    /**
+     * Getter method for the names of the partitions of the index.
+     *
+     * @return a Set of Strings of the university codes and UNAVAILABILITY_PARTITION.
+     */
+    public Set<String> getPartitions() {
+        return Collections.unmodifiableSet(partitions.keySet());
+    }
+
+    /**
+     * Getter method for the version of the list of all events the index was built from.
+     *
+     * @return a long of the version number.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Getter method for the number of events in the index.
+     *
+     * @return an int of the number of events.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,238 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How far each delivery officer is above or below the average workload in every week of a term, the same comparison
+ * as Staff.getEventsComparedToAverageForMonth but for every officer and every week at once. Each week is compared
+ * over a window of the weeks either side of it, which slides along the weekly workload of the WorkloadMatrix adding
+ * the week coming into the window and taking away the week leaving it, so the whole report costs one pass over the
+ * weeks of each officer.
+ *
+ * Weeks in a row where an officer is at least a given number of events above or below the average are reported as
+ * overload and underload streaks.
+ */
+public class FairnessReport {
+
+    /**
+     * The number of weeks either side of a week included in its window.
+     */
+    public static final int WINDOW_WEEKS = 2;
+
+    private final List<Staff> officers;
+    private final List<LocalDate> mondays;
+    private final double[][] comparedToAverage;
+
+    /**
+     * Constructor for FairnessReport objects.
+     *
+     * @param workload    the workload of the officers.
+     * @param officers    the delivery officers to report on.
+     * @param firstDay    the first date, whose whole week is included.
+     * @param lastDay     the last date, whose whole week is included.
+     * @param windowWeeks an int of the number of weeks either side of each week to compare over.
+     * @throws IllegalArgumentException if the last date is before the first date.
+     */
+    public FairnessReport(WorkloadMatrix workload, List<Staff> officers, LocalDate firstDay, LocalDate lastDay,
+                          int windowWeeks) {
+        if (lastDay.isBefore(firstDay)) {
+            throw new IllegalArgumentException("The last date of a fairness report must not be before the first");
+        }
+        long start = System.nanoTime();
+        this.officers = new ArrayList<>(officers);
+        this.mondays = WorkloadMatrix.getMondays(firstDay, lastDay);
+        List<LocalDate> windowMondays = WorkloadMatrix.getMondays(firstDay.minusWeeks(windowWeeks),
+                lastDay.plusWeeks(windowWeeks));
+
+        double[][] windowEvents = new double[officers.size()][];
+        double[] fullTimeWindowEvents = new double[mondays.size()];
+        int fullTimeOfficers = 0;
+        for (int i = 0; i < officers.size(); i++) {
+            windowEvents[i] = slideWindow(workload.getWeeklyEvents(officers.get(i), windowMondays),
+                    windowWeeks, mondays.size());
+            if (officers.get(i).getTimeCommitment() == 100) {
+                fullTimeOfficers++;
+                for (int week = 0; week < mondays.size(); week++) {
+                    fullTimeWindowEvents[week] += windowEvents[i][week];
+                }
+            }
+        }
+
+        this.comparedToAverage = new double[officers.size()][mondays.size()];
+        for (int i = 0; i < officers.size(); i++) {
+            double timeCommitment = officers.get(i).getTimeCommitment() / 100.0;
+            for (int week = 0; week < mondays.size(); week++) {
+                double average = fullTimeWindowEvents[week] / fullTimeOfficers;
+                comparedToAverage[i][week] = windowEvents[i][week] - average * timeCommitment;
+            }
+        }
+        Metrics.recordLatency("fairness.build", start);
+    }
+
+    /**
+     * Adds up the events in the window around each week, from the weekly events of the weeks of the report with
+     * windowWeeks more weeks either side. With no weeks in the report there are no windows.
+     */
+    private static double[] slideWindow(double[] weeklyEvents, int windowWeeks, int numberOfWeeks) {
+        double[] windowEvents = new double[numberOfWeeks];
+        if (numberOfWeeks == 0) {
+            return windowEvents;
+        }
+        double sum = 0;
+        for (int week = 0; week < 2 * windowWeeks; week++) {
+            sum += weeklyEvents[week];
+        }
+        for (int week = 0; week < numberOfWeeks; week++) {
+            sum += weeklyEvents[week + 2 * windowWeeks];       //The week coming into the window
+            windowEvents[week] = sum;
+            sum -= weeklyEvents[week];                         //The week leaving the window
+        }
+        return windowEvents;
+    }
+
+    /**
+     * Getter method for the Mondays of the weeks of the report.
+     *
+     * @return a List of the Mondays.
+     */
+    public List<LocalDate> getMondays() {
+        return Collections.unmodifiableList(mondays);
+    }
+
+    /**
+     * Getter method for the delivery officers of the report.
+     *
+     * @return a List of the officers, in the order of the rows of the report.
+     */
+    public List<Staff> getOfficers() {
+        return Collections.unmodifiableList(officers);
+    }
+
+    /**
+     * Gets the number of events an officer has above the average for their time commitment in each week, over the
+     * window around the week, negative if they are below the average.
+     *
+     * @param officer an int of the position of the officer in getOfficers().
+     * @return a double array of the difference in each week, NaN if there are no full time delivery officers.
+     */
+    public double[] getComparedToAverage(int officer) {
+        return comparedToAverage[officer].clone();
+    }
+
+    /**
+     * Finds the weeks in a row where an officer is at least a number of events above or below the average.
+     *
+     * @param events   a double of the number of events above or below the average which counts as overload or
+     *                 underload.
+     * @param minWeeks an int of the fewest weeks in a row which make a streak.
+     * @return a List of the streaks of every officer, in the order of the officers and then by date.
+     */
+    public List<Streak> findStreaks(double events, int minWeeks) {
+        List<Streak> streaks = new ArrayList<>();
+        for (int i = 0; i < officers.size(); i++) {
+            int streakStart = 0;
+            int streakSign = 0;
+            for (int week = 0; week <= mondays.size(); week++) {
+                double difference = week < mondays.size() ? comparedToAverage[i][week] : 0;
+                int sign = difference >= events ? 1 : difference <= -events ? -1 : 0;
+                if (sign != streakSign) {
+                    if (streakSign != 0 && week - streakStart >= minWeeks) {
+                        streaks.add(newStreak(i, streakSign > 0, streakStart, week - 1));
+                    }
+                    streakStart = week;
+                    streakSign = sign;
+                }
+            }
+        }
+        return streaks;
+    }
+
+    private Streak newStreak(int officer, boolean overload, int firstWeek, int lastWeek) {
+        double largestDifference = 0;
+        for (int week = firstWeek; week <= lastWeek; week++) {
+            if (Math.abs(comparedToAverage[officer][week]) > Math.abs(largestDifference)) {
+                largestDifference = comparedToAverage[officer][week];
+            }
+        }
+        return new Streak(officers.get(officer).getName(), overload, mondays.get(firstWeek),
+                mondays.get(lastWeek).plusDays(6), lastWeek - firstWeek + 1, largestDifference);
+    }
+
+    /**
+     * Weeks in a row where a delivery officer was above, or below, the average workload.
+     */
+    public static class Streak {
+
+        private final String name;
+        private final boolean overload;
+        private final LocalDate firstDay;
+        private final LocalDate lastDay;
+        private final int numberOfWeeks;
+        private final double largestDifference;
+
+        private Streak(String name, boolean overload, LocalDate firstDay, LocalDate lastDay, int numberOfWeeks,
+                       double largestDifference) {
+            this.name = name;
+            this.overload = overload;
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+            this.numberOfWeeks = numberOfWeeks;
+            this.largestDifference = largestDifference;
+        }
+
+        /**
+         * Getter method for the name of the delivery officer.
+         *
+         * @return a String of the name of the delivery officer.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Getter method for whether the officer was above the average.
+         *
+         * @return true for overload, false for underload.
+         */
+        public boolean isOverload() {
+            return overload;
+        }
+
+        /**
+         * Getter method for the Monday of the first week of the streak.
+         *
+         * @return the LocalDate of the first day.
+         */
+        public LocalDate getFirstDay() {
+            return firstDay;
+        }
+
+        /**
+         * Getter method for the Sunday of the last week of the streak.
+         *
+         * @return the LocalDate of the last day.
+         */
+        public LocalDate getLastDay() {
+            return lastDay;
+        }
+
+        /**
+         * Getter method for the length of the streak.
+         *
+         * @return an int of the number of weeks.
+         */
+        public int getNumberOfWeeks() {
+            return numberOfWeeks;
+        }
+
+        /**
+         * Getter method for the difference from the average in the week furthest from it.
+         *
+         * @return a double of the number of events above the average, negative if below it.
+         */
+        public double getLargestDifference() {
+            return largestDifference;
+        }
+    }
+}
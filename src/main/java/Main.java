@@ -1,23 +1,31 @@
 import com.google.api.client.util.DateTime;
 import javafx.application.Application;
-import javafx.scene.Scene;
-import javafx.scene.layout.FlowPane;
-import javafx.scene.layout.Pane;
 import javafx.stage.Stage;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
 import java.security.GeneralSecurityException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.function.BiConsumer;
 
 public class Main extends Application {
 
     private static final DateTime startingDate = new DateTime("2019-09-01T08:00:00+00:00");
-    private static final String calendarEmail = "shared@technocamps.com";
+    private static final Map<String, String> calendarSources =
+            parseCalendarSources(System.getProperty("calendar.sources", "SU=shared@technocamps.com"));
 
     /**
      * Getter for the startingDate to set the earliest date calendar entries are loaded from.
@@ -29,8 +37,47 @@ public class Main extends Application {
     }
 
     /**
-     * Main method of the program. It ensures the staff list is populated and all events are read in from
-     * the API before opening the user interface.
+     * Getter for the shared calendars events are loaded from, set with -Dcalendar.sources as a comma separated list
+     * of university codes and calendar email addresses, such as "SU=shared@technocamps.com,AU=aber@technocamps.com".
+     * Several universities can share one calendar.
+     *
+     * @return a Map of the university codes to the email addresses of their calendars, in the order given.
+     */
+    public static Map<String, String> getCalendarSources() {
+        return calendarSources;
+    }
+
+    /**
+     * Reads a list of calendar sources in the "SU=shared@technocamps.com,AU=aber@technocamps.com" format.
+     *
+     * @param sources a String of the calendar sources.
+     * @return a Map of the university codes to the email addresses of their calendars, in the order given.
+     * @throws IllegalArgumentException if a source is not a university code and email address.
+     */
+    static Map<String, String> parseCalendarSources(String sources) {
+        Map<String, String> calendarsByUniversity = new LinkedHashMap<>();
+        for (String source : sources.split(",")) {
+            String[] parts = source.trim().split("=");
+            if (parts.length != 2 || parts[0].trim().isEmpty() || !parts[1].contains("@")) {
+                throw new IllegalArgumentException("Calendar source \"" + source
+                        + "\" must be a university code and calendar email, such as SU=shared@technocamps.com");
+            }
+            calendarsByUniversity.put(parts[0].trim(), parts[1].trim());
+        }
+        return Collections.unmodifiableMap(calendarsByUniversity);
+    }
+
+    /**
+     * Main method of the program. It opens the window of the booking system, which loads the staff list and all
+     * events from the API in the background. Running with "--console" loads everything first and then opens the
+     * console user interface instead, which is also where staff details are edited. Running with
+     * "--synthetic officers events [seed]" loads a generated roster and calendar instead, for testing with large
+     * amounts of data. Running with "--batch" followed by commands, or "--script file", runs reports without any
+     * prompts and then exits, see BatchCommands. Running with "--serve [port [address]]" answers queries over
+     * HTTP, see QueryServer. Events are loaded from the shared calendar of each university in -Dcalendar.sources, see
+     * getCalendarSources(). The window and the server load the calendar again every 30 minutes, or every
+     * -Dcalendar.refreshMinutes minutes, 0 to never refresh, and the server prints a summary of each refresh. Running
+     * with -Dmetrics.dumpOnExit=true prints the timings of the system when it shuts down.
      *
      * @param args string arguments used when given through the console.
      * @throws IOException              if text file of Staff member details does not exist.
@@ -38,35 +85,169 @@ public class Main extends Application {
      */
     public static void main(String... args) throws IOException, GeneralSecurityException {
         //test();
+        if (Boolean.getBoolean("metrics.dumpOnExit")) {
+            Runtime.getRuntime().addShutdownHook(new Thread(Metrics::dump));
+        }
 
-        Staff.populateStaffList();
-        CalendarQuickstart.getEventsFromCalendar(startingDate, calendarEmail);
-        for (Staff staff : Staff.getAllStaffList()) {
-            CalendarQuickstart.getIndividualUnavailability(getStartingDate(), staff, staff.getEmail());
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        int batchIndex = Math.max(arguments.indexOf("--batch"), arguments.indexOf("--script"));
+        int serveIndex = arguments.indexOf("--serve");
+        if (batchIndex >= 0) {
+            System.exit(runBatch(arguments.subList(0, batchIndex),
+                    arguments.subList(batchIndex, arguments.size())));
+        } else if (serveIndex >= 0) {
+            serve(arguments.subList(0, serveIndex), arguments.subList(serveIndex + 1, arguments.size()));
+        } else if (arguments.remove("--console")) {
+            loadCalendarData(arguments, (loaded, total) -> {
+            });
+            System.out.println();
+            userInterface();
+        } else {
+            launch(args);
         }
-        System.out.println();
-        launch(args);
-        userInterface();
+    }
+
+    /**
+     * Loads the calendar and answers queries about it over HTTP until the program is stopped.
+     *
+     * @param dataArgs   a List of Strings of the arguments choosing where the calendar is loaded from.
+     * @param serverArgs a List of Strings of the optional port, 8080 by default, and address to listen on,
+     *                   127.0.0.1 by default.
+     * @throws IOException              if the staff text file cannot be read or the port cannot be used.
+     * @throws GeneralSecurityException if issue with Google Calendar API credentials.
+     */
+    private static void serve(List<String> dataArgs, List<String> serverArgs)
+            throws IOException, GeneralSecurityException {
+        int port = serverArgs.isEmpty() ? 8080 : Integer.parseInt(serverArgs.get(0));
+        String host = serverArgs.size() > 1 ? serverArgs.get(1) : "127.0.0.1";
+        loadCalendarData(dataArgs, (loaded, total) -> {
+        });
+        QueryServer server = new QueryServer(new InetSocketAddress(host, port));
+        server.start();
+        startRefreshing(dataArgs, System.out);
+        System.out.println("Answering queries on http://" + host + ":" + server.getPort() + "/");
+    }
+
+    /**
+     * Loads the calendar and runs the commands given after "--batch", separated by ";", or in the script file
+     * given after "--script", without any prompts.
+     *
+     * @param dataArgs    a List of Strings of the arguments choosing where the calendar is loaded from.
+     * @param commandArgs a List of Strings starting with "--batch" or "--script".
+     * @return an int of the exit status, 0 if every command succeeded.
+     * @throws IOException              if the staff text file or script file cannot be read.
+     * @throws GeneralSecurityException if issue with Google Calendar API credentials.
+     */
+    private static int runBatch(List<String> dataArgs, List<String> commandArgs)
+            throws IOException, GeneralSecurityException {
+        List<List<String>> commands;
+        if (commandArgs.get(0).equals("--script")) {
+            if (commandArgs.size() < 2) {
+                System.err.println("Usage: --script file");
+                return 2;
+            }
+            commands = BatchCommands.readScript(new File(commandArgs.get(1)));
+        } else {
+            commands = BatchCommands.splitCommands(commandArgs.subList(1, commandArgs.size()));
+        }
+        long start = System.nanoTime();
+        loadCalendarData(dataArgs, (loaded, total) -> {
+        });
+        Metrics.recordLatency("batch.load", start);
+        return new BatchCommands(System.out).runAll(commands) == 0 ? 0 : 1;
+    }
+
+    /**
+     * Populates the staff list and reads in all events, either from the API or from the synthetic generator when
+     * the arguments start with "--synthetic officers events [seed]".
+     *
+     * @param args     a List of Strings containing the command line arguments.
+     * @param progress called with the number of calendars loaded so far and the total number of calendars.
+     * @throws IOException              if text file of Staff member details does not exist.
+     * @throws GeneralSecurityException if issue with Google Calendar API credentials.
+     */
+    public static void loadCalendarData(List<String> args, BiConsumer<Integer, Integer> progress)
+            throws IOException, GeneralSecurityException {
+        if (args.size() >= 3 && args.get(0).equals("--synthetic")) {
+            progress.accept(0, 1);
+            long seed = args.size() > 3 ? Long.parseLong(args.get(3)) : 1L;
+            new CalendarGenerator(seed, Integer.parseInt(args.get(1)), Integer.parseInt(args.get(2)))
+                    .populateStores();
+            progress.accept(1, 1);
+        } else {
+            Staff.populateStaffList();
+            int sharedCalendars = new HashSet<>(calendarSources.values()).size();
+            int total = Staff.getAllStaffList().size() + sharedCalendars;
+            progress.accept(0, total);
+            CalendarQuickstart.getEventsFromCalendars(startingDate, calendarSources);
+            progress.accept(sharedCalendars, total);
+            CalendarQuickstart.getAllUnavailability(startingDate, Staff.getAllStaffList(),
+                    loaded -> progress.accept(sharedCalendars + loaded, total));
+        }
+    }
+
+    /**
+     * Starts loading the calendar again in the background every -Dcalendar.refreshMinutes minutes, 30 by default,
+     * from the same place it was first loaded from. Staff are not loaded again.
+     *
+     * @param args a List of Strings containing the command line arguments.
+     * @param log  where a summary of each refresh is printed, or null to only record it in Metrics.
+     * @return the CalendarRefresher started, or null if refreshing is turned off.
+     */
+    public static CalendarRefresher startRefreshing(List<String> args, PrintStream log) {
+        long minutes = Long.getLong("calendar.refreshMinutes", 30L);
+        if (minutes <= 0) {
+            return null;
+        }
+        CalendarRefresher refresher;
+        if (args.size() >= 3 && args.get(0).equals("--synthetic")) {
+            long seed = args.size() > 3 ? Long.parseLong(args.get(3)) : 1L;
+            CalendarGenerator generator =
+                    new CalendarGenerator(seed, Integer.parseInt(args.get(1)), Integer.parseInt(args.get(2)));
+            refresher = new CalendarRefresher(generator::generateEvents, log);
+        } else {
+            refresher = new CalendarRefresher(() -> CalendarQuickstart.fetchAllEvents(startingDate, calendarSources),
+                    log);
+        }
+        refresher.start(minutes);
+        return refresher;
+    }
+
+    /**
+     * The screens of the console user interface.
+     */
+    private enum MenuState {
+        LOG_IN, MAIN_MENU
     }
 
     /**
      * Opens the user interface for the program. It allows a user to login and runs the main menu based on
-     * their admin credentials.
+     * their admin credentials. Each screen returns the screen to show next, so however long the program is used
+     * the menus never call each other and the call stack does not grow.
      */
     public static void userInterface() {
+        MenuState state = MenuState.LOG_IN;
+        Staff user = null;
         System.out.println("Welcome to the Technocamps Booking System. Please select your name:\n\n");
-        boolean memberExists = true;
-        do {
-            Staff user = Validation.logIn();
-            if (user == null) {
-                memberExists = false;
-                System.out.println("\nNot a valid choice!\n");
-            } else {
-                    mainMenu(user, user.getAdminPrivileges());
-
+        while (true) {
+            switch (state) {
+                case LOG_IN:
+                    user = Validation.logIn();
+                    if (user == null) {
+                        System.out.println("\nNot a valid choice!\n");
+                    } else {
+                        state = MenuState.MAIN_MENU;
+                    }
+                    break;
+                case MAIN_MENU:
+                    user = Staff.getStaffById(user.getStaffId());  //The user's details may have been edited
+                    state = mainMenu(user, user.getAdminPrivileges());
+                    if (state == MenuState.LOG_IN) {
+                        System.out.println("Welcome to the Technocamps Booking System. Please select your name:\n\n");
+                    }
+                    break;
             }
-        } while (!memberExists);
-
+        }
     }
 
     /**
@@ -85,12 +266,14 @@ public class Main extends Application {
     }
 
     /**
-     * Main menu method providing a structure for a simple console-based user interface.
+     * Main menu method providing a structure for a simple console-based user interface. It shows the menu once and
+     * runs the chosen option.
      *
      * @param user The current Delivery Officer logged in to the system.
      * @param adminPrivileges A boolean showing whether the User is an admin or not.
+     * @return the MenuState to show next, LOG_IN if the user has logged out.
      */
-    private static void mainMenu(Staff user, boolean adminPrivileges) {
+    private static MenuState mainMenu(Staff user, boolean adminPrivileges) {
 
         try {
 
@@ -105,7 +288,7 @@ public class Main extends Application {
             System.out.println("X) Log Out\n*******************************************************************");
             System.out.println("Please select an option: ");
 
-            Scanner in = new Scanner(System.in);
+            Scanner in = Validation.getConsoleInput();
             String mainMenuResponse = in.nextLine().trim().toLowerCase();
             switch (mainMenuResponse) {
                 case "1":
@@ -130,16 +313,39 @@ public class Main extends Application {
                         addRemoveStaff(user, in);
                     }
                     break;
+                case "m":                                                        //Hidden option for diagnostics
+                    Metrics.dump();
+                    break;
                 case "x":
                     System.out.println("You have successfully logged out.");
-                    userInterface();
+                    return MenuState.LOG_IN;
             }
             System.out.println();
-            mainMenu(user, adminPrivileges);
         } catch (IOException | ParseException e) {
             e.printStackTrace();
         }
+        return MenuState.MAIN_MENU;
+    }
 
+    /**
+     * A report printed by a menu option once its input has been read.
+     */
+    private interface Report {
+        void print() throws ParseException;
+    }
+
+    /**
+     * Prints a report and records how long it took as the latency of the menu option, so the time the user takes to
+     * answer the prompts is not counted.
+     *
+     * @param menuOption a String of the name of the menu option, recorded as "menu." followed by the name.
+     * @param report     the report to print.
+     * @throws ParseException if the report is given incorrectly formatted dates.
+     */
+    private static void printReport(String menuOption, Report report) throws ParseException {
+        long start = System.nanoTime();
+        report.print();
+        Metrics.recordLatency("menu." + menuOption, start);
     }
 
     /**
@@ -162,12 +368,12 @@ public class Main extends Application {
         switch (response) {
             case "1":
                 System.out.println("\nAll Events: \n");
-                TechnocampsEvent.printAllEvents();
+                printReport("viewEventsFromSharedCalendar", TechnocampsEvent::printAllEvents);
                 break;
             case "2":
                 DateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-                Date todayDate = new Date();
-                TechnocampsEvent.printAllEvents(dateFormat.format(todayDate));
+                String today = dateFormat.format(new Date());
+                printReport("viewEventsFromSharedCalendar", () -> TechnocampsEvent.printAllEvents(today));
                 break;
             case "3":
                 String startDate = null;
@@ -206,18 +412,23 @@ public class Main extends Application {
                             }
                         }
                     } while (!validDate);
-                    if (endDate == null) {
-                        TechnocampsEvent.printAllEvents(startDate);
-                    } else {
-                        TechnocampsEvent.printAllEvents(startDate, endDate);
-                    }
+                    String from = startDate;
+                    String to = endDate;
+                    printReport("viewEventsFromSharedCalendar", () -> {
+                        if (to == null) {
+                            TechnocampsEvent.printAllEvents(from);
+                        } else {
+                            TechnocampsEvent.printAllEvents(from, to);
+                        }
+                    });
                 }
                 break;
             case "4":
                 ArrayList<String> dates = TechnocampsEvent.searchByMonth();
                 String startDateMonth = dates.get(0);
                 String endDateMonth = dates.get(1);
-                TechnocampsEvent.printAllEvents(startDateMonth, endDateMonth);
+                printReport("viewEventsFromSharedCalendar",
+                        () -> TechnocampsEvent.printAllEvents(startDateMonth, endDateMonth));
                 break;
             case "":
                 break;
@@ -246,7 +457,7 @@ public class Main extends Application {
             System.out.println("Please select a staff member:  (Leave blank to return to main menu)");
             chosenStaffMemberName = scanner.nextLine().trim();
             if (chosenStaffMemberName.equals("")) {
-                mainMenu(user, adminPrivileges);
+                return;
             } else if (!Staff.staffMemberExists(chosenStaffMemberName)) {
                 System.out.println("No staff member by that name found!");
                 validName = false;
@@ -263,17 +474,18 @@ public class Main extends Application {
                 "4) Search by Month"
                 + "\n*******************************************************************\n");
         String response = scanner.nextLine().trim();
+        String name = chosenStaffMember.getName();
         System.out.println();
         switch (response) {
             case "1": {
                 String startDate = Validation.convertDateTimeToUKFormat(getStartingDate());
-                Staff.printStaffEventLists(chosenStaffMember.getName(), startDate);
+                printReport("viewIndividualStaffEvents", () -> Staff.printStaffEventLists(name, startDate));
                 break;
             }
             case "2": {
                 DateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-                Date todayDate = new Date();
-                Staff.printStaffEventLists(chosenStaffMember.getName(), dateFormat.format(todayDate));
+                String today = dateFormat.format(new Date());
+                printReport("viewIndividualStaffEvents", () -> Staff.printStaffEventLists(name, today));
                 break;
             }
             case "3": {
@@ -313,11 +525,15 @@ public class Main extends Application {
                             }
                         }
                     } while (!validDate);
-                    if (endDate == null) {
-                        Staff.printStaffEventLists(chosenStaffMember.getName(), startDate);
-                    } else {
-                        Staff.printStaffEventLists(chosenStaffMember.getName(), startDate, endDate);
-                    }
+                    String from = startDate;
+                    String to = endDate;
+                    printReport("viewIndividualStaffEvents", () -> {
+                        if (to == null) {
+                            Staff.printStaffEventLists(name, from);
+                        } else {
+                            Staff.printStaffEventLists(name, from, to);
+                        }
+                    });
                 }
 
                 break;
@@ -326,7 +542,7 @@ public class Main extends Application {
                 ArrayList<String> dates = TechnocampsEvent.searchByMonth();
                 String startDate = dates.get(0);
                 String endDate = dates.get(1);
-                Staff.printStaffEventLists(chosenStaffMember.getName(), startDate, endDate);
+                printReport("viewIndividualStaffEvents", () -> Staff.printStaffEventLists(name, startDate, endDate));
                 break;
             case "":
                 break;
@@ -349,7 +565,7 @@ public class Main extends Application {
             } else {
                 try {
                     Validation.checkValidDate(response);
-                    Staff.displayAvailableOfficers(response);
+                    printReport("findAvailableDeliveryOfficersForDate", () -> Staff.displayAvailableOfficers(response));
                 } catch (ParseException e) {
                     System.out.println("Invalid Date Format! (To return to the main menu press Enter)");
                     validResponse = false;
@@ -378,13 +594,12 @@ public class Main extends Application {
         System.out.println();
         switch (response) {
             case "1":
-                Staff.printStaffNumberOfEvents();
-
+                printReport("viewNumberOfEvents", Staff::printStaffNumberOfEvents);
                 break;
             case "2":
                 DateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-                Date todayDate = new Date();
-                Staff.printStaffNumberOfEvents(dateFormat.format(todayDate));
+                String today = dateFormat.format(new Date());
+                printReport("viewNumberOfEvents", () -> Staff.printStaffNumberOfEvents(today));
                 break;
             case "3":
                 String startDate = null;
@@ -423,18 +638,20 @@ public class Main extends Application {
                             }
                         }
                     } while (!validDate);
-                    if (endDate == null) {
-                        Staff.printStaffNumberOfEvents(startDate);
-                    } else {
-                        Staff.printStaffNumberOfEvents(startDate, endDate);
-                    }
+                    String from = startDate;
+                    String to = endDate;
+                    printReport("viewNumberOfEvents", () -> {
+                        if (to == null) {
+                            Staff.printStaffNumberOfEvents(from);
+                        } else {
+                            Staff.printStaffNumberOfEvents(from, to);
+                        }
+                    });
                 }
                 break;
             case "4":
                 ArrayList<String> dates = TechnocampsEvent.searchByMonth();
-                startDate = dates.get(0);
-                endDate = dates.get(1);
-                Staff.printStaffNumberOfEvents(startDate, endDate);
+                printReport("viewNumberOfEvents", () -> Staff.printStaffNumberOfEvents(dates.get(0), dates.get(1)));
                 break;
         }
     }
@@ -458,7 +675,7 @@ public class Main extends Application {
             System.out.println("Please select a staff member:  (Leave blank to return to main menu)");
             chosenStaffMemberName = scanner.nextLine().trim();
             if (chosenStaffMemberName.equals("")) {
-                mainMenu(user, adminPrivileges);
+                return;
             }
             if (!Staff.staffMemberExists(chosenStaffMemberName)) {
                 System.out.println("No staff member by that name found!");
@@ -638,10 +855,6 @@ public class Main extends Application {
 
     @Override
     public void start(Stage stage) throws Exception {
-        Pane root = new FlowPane();
-        Scene scene = new Scene(root, 400, 400);
-
-        stage.setScene(scene);
-        stage.show();
+        new MainWindow(stage).show(getParameters().getRaw());
     }
 }
@@ -0,0 +1,416 @@
+import javafx.animation.PauseTransition;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import javafx.util.StringConverter;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * The JavaFX window of the booking system. It is shown straight away while the calendar loads in the background,
+ * and every report and recommendation runs on a background thread with the results delivered to observable lists,
+ * so the window never stops responding.
+ */
+public class MainWindow {
+
+    private final Stage stage;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "calendar-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ObservableList<TechnocampsEvent> events = FXCollections.observableArrayList();
+    private final ObservableList<TechnocampsEvent> staffEvents = FXCollections.observableArrayList();
+    private final ObservableList<StaffWorkload> workloads = FXCollections.observableArrayList();
+    private final ObservableList<AvailableOfficer> availableOfficers = FXCollections.observableArrayList();
+    private final ObservableList<Staff> staffMembers = FXCollections.observableArrayList();
+
+    private final Label status = new Label();
+    private final ProgressBar progressBar = new ProgressBar();
+    private final TabPane tabs = new TabPane();
+    private Task<?> currentTask;
+
+    private final Label eventsMonth = new Label();
+    private final DatePicker eventsFrom = createDatePicker(null);
+    private final DatePicker eventsTo = createDatePicker(null);
+    private YearMonth shownMonth;
+
+    /**
+     * Constructor for MainWindow objects.
+     *
+     * @param stage the primary stage of the JavaFX application.
+     */
+    public MainWindow(Stage stage) {
+        this.stage = stage;
+    }
+
+    /**
+     * Shows the window and starts loading the staff list and calendar in the background.
+     *
+     * @param args the command line arguments, used to choose between the Google Calendar and generated data.
+     */
+    public void show(List<String> args) {
+        tabs.getTabs().add(createEventsTab());
+        tabs.getTabs().add(createStaffEventsTab());
+        tabs.getTabs().add(createWorkloadTab());
+        tabs.getTabs().add(createAvailabilityTab());
+        tabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+        tabs.setDisable(true);
+
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        HBox statusBar = new HBox(10, progressBar, status);
+        HBox.setHgrow(progressBar, Priority.ALWAYS);
+        statusBar.setPadding(new Insets(5));
+
+        BorderPane root = new BorderPane(tabs);
+        root.setBottom(statusBar);
+        stage.setTitle("Technocamps Booking System");
+        stage.setScene(new Scene(root, 1000, 650));
+        stage.show();
+        loadCalendar(args);
+    }
+
+    /**
+     * Loads the staff list and calendar on the background thread, showing the progress in the status bar.
+     */
+    private void loadCalendar(List<String> args) {
+        Task<Void> loadTask = new Task<Void>() {
+            @Override
+            protected Void call() throws Exception {
+                updateMessage("Loading calendar...");
+                Main.loadCalendarData(args, (loaded, total) -> {
+                    updateProgress(loaded, total);
+                    updateMessage("Loading calendar... (" + loaded + " of " + total + " calendars)");
+                });
+                EventDateIndex.getCurrent();
+                return null;
+            }
+        };
+        currentTask = loadTask;
+        progressBar.progressProperty().bind(loadTask.progressProperty());
+        status.textProperty().bind(loadTask.messageProperty());
+        loadTask.setOnSucceeded(event -> {
+            finishTask(loadTask, 1);
+            staffMembers.setAll(Staff.getAllStaffList());
+            status.setText("Loaded " + TechnocampsEvent.getAllEvents().size() + " events for "
+                    + Staff.getAllStaffList().size() + " staff members.");
+            tabs.setDisable(false);
+            Main.startRefreshing(args, null);
+            EventDateIndex eventIndex = EventDateIndex.getCurrent();
+            YearMonth month = eventIndex.getNextMonthWithEvents(YearMonth.now());
+            if (month == null) {
+                month = eventIndex.getPreviousMonthWithEvents(YearMonth.now());
+            }
+            if (month != null) {
+                showMonth(month);
+            }
+        });
+        loadTask.setOnFailed(event -> {
+            finishTask(loadTask, 0);
+            status.setText("Could not load the calendar: " + loadTask.getException().getMessage());
+        });
+        worker.submit(loadTask);
+    }
+
+    /**
+     * Runs a query on the background thread and replaces the contents of an observable list with the results.
+     *
+     * @param description a String describing the query for the status bar.
+     * @param query       the query to run.
+     * @param results     the list the results are delivered to.
+     */
+    private <T> void runQuery(String description, Callable<List<T>> query, ObservableList<T> results) {
+        Task<List<T>> task = new Task<List<T>>() {
+            @Override
+            protected List<T> call() throws Exception {
+                return TechnocampsEvent.getEventStore().readConsistently(query);
+            }
+        };
+        currentTask = task;
+        progressBar.progressProperty().bind(task.progressProperty());
+        status.textProperty().unbind();
+        status.setText(description + "...");
+        task.setOnSucceeded(event -> {
+            results.setAll(task.getValue());
+            if (finishTask(task, 1)) {
+                status.setText(description + ": " + task.getValue().size() + " results.");
+            }
+        });
+        task.setOnFailed(event -> {
+            if (finishTask(task, 0)) {
+                status.setText(description + " failed: " + task.getException().getMessage());
+            }
+        });
+        worker.submit(task);
+    }
+
+    /**
+     * Stops showing the progress of a task once it has finished, unless a newer task has started since, whose
+     * progress is left showing.
+     *
+     * @return true if the task was the newest task, so its result can be shown in the status bar.
+     */
+    private boolean finishTask(Task<?> task, double progress) {
+        if (task != currentTask) {
+            return false;
+        }
+        progressBar.progressProperty().unbind();
+        status.textProperty().unbind();
+        progressBar.setProgress(progress);
+        return true;
+    }
+
+    /**
+     * Creates the tab for browsing the shared calendar a month at a time, or between any two dates. Only the events
+     * in the chosen period are loaded, and the table only creates cells for the rows on screen, so it stays smooth
+     * with hundreds of thousands of events. The events shown can be filtered by school, workshop, type or officer.
+     */
+    private Tab createEventsTab() {
+        Button previous = new Button("< Previous Month");
+        previous.setOnAction(action -> {
+            YearMonth month = shownMonth == null ? null
+                    : EventDateIndex.getCurrent().getPreviousMonthWithEvents(shownMonth.minusMonths(1));
+            if (month != null) {
+                showMonth(month);
+            }
+        });
+        Button next = new Button("Next Month >");
+        next.setOnAction(action -> {
+            YearMonth month = shownMonth == null ? null
+                    : EventDateIndex.getCurrent().getNextMonthWithEvents(shownMonth.plusMonths(1));
+            if (month != null) {
+                showMonth(month);
+            }
+        });
+        Button search = new Button("Search");
+        search.setOnAction(action -> {
+            LocalDate startDate = eventsFrom.getValue();
+            LocalDate endDate = eventsTo.getValue();
+            shownMonth = startDate == null ? null : YearMonth.from(startDate);
+            eventsMonth.setText("");
+            runQuery("Events", () -> EventDateIndex.getCurrent().getEventsBetween(startDate, endDate), events);
+        });
+
+        FilteredList<TechnocampsEvent> filteredEvents = new FilteredList<>(events);
+        TextField filter = new TextField();
+        filter.setPromptText("School, workshop, type or officer");
+        PauseTransition typingPause = new PauseTransition(Duration.millis(150));
+        typingPause.setOnFinished(finished -> {
+            String text = filter.getText().trim().toLowerCase();
+            filteredEvents.setPredicate(text.isEmpty() ? null : event -> event.matchesFilter(text));
+            status.setText("Showing " + filteredEvents.size() + " of " + events.size() + " events.");
+        });
+        filter.textProperty().addListener((observable, oldText, newText) -> typingPause.playFromStart());
+
+        eventsMonth.setMinWidth(110);
+        Node paging = new HBox(10, previous, eventsMonth, next, new Label("From"), eventsFrom, new Label("To"),
+                eventsTo, search);
+        Node filtering = new HBox(10, new Label("Filter"), filter);
+        HBox.setHgrow(filter, Priority.ALWAYS);
+        TableView<TechnocampsEvent> table = createEventTable(filteredEvents, true);
+        return createTab("Events", new VBox(10, paging, filtering), table);
+    }
+
+    /**
+     * Loads the events of a month into the events tab.
+     */
+    private void showMonth(YearMonth month) {
+        shownMonth = month;
+        eventsMonth.setText(month.format(DateTimeFormatter.ofPattern("MMMM yyyy")));
+        eventsFrom.setValue(month.atDay(1));
+        eventsTo.setValue(month.atEndOfMonth());
+        runQuery("Events in " + eventsMonth.getText(), () -> EventDateIndex.getCurrent().getEventsInMonth(month), events);
+    }
+
+    private Tab createStaffEventsTab() {
+        ComboBox<Staff> staffMember = new ComboBox<>(staffMembers);
+        staffMember.setConverter(new StringConverter<Staff>() {
+            @Override
+            public String toString(Staff staff) {
+                return staff == null ? "" : staff.getName();
+            }
+
+            @Override
+            public Staff fromString(String name) {
+                return Staff.findStaffMember(name);
+            }
+        });
+        DatePicker from = createDatePicker(getStartingDate());
+        DatePicker to = createDatePicker(null);
+        Button search = new Button("Search");
+        search.setOnAction(action -> {
+            Staff chosen = staffMember.getValue();
+            if (chosen != null) {
+                String startDate = toUKDate(from.getValue());
+                String endDate = toUKDate(to.getValue());
+                runQuery("Events for " + chosen.getName(),
+                        () -> Staff.getStaffEventList(chosen.getName(), startDate, endDate), staffEvents);
+            }
+        });
+        Node controls = new HBox(10, staffMember, new Label("From"), from, new Label("To"), to, search);
+        return createTab("Staff Events", controls, createEventTable(staffEvents, false));
+    }
+
+    private Tab createWorkloadTab() {
+        DatePicker from = createDatePicker(null);
+        DatePicker to = createDatePicker(null);
+        Button search = new Button("Search");
+        search.setOnAction(action -> {
+            String startDate = toUKDate(from.getValue());
+            String endDate = startDate == null ? null : toUKDate(to.getValue());
+            runQuery("Number of events", () -> Staff.getStaffWorkloads(startDate, endDate), workloads);
+        });
+        TableView<StaffWorkload> table = new TableView<>(workloads);
+        table.getColumns().add(createColumn("Delivery Officer", StaffWorkload::getName));
+        table.getColumns().add(createColumn("Number of Events", StaffWorkload::getNumberOfEvents));
+        table.getColumns().add(createColumn("Recommended Number of Events",
+                StaffWorkload::getRecommendedNumberOfEvents));
+        Node controls = new HBox(10, new Label("From (blank for all)"), from, new Label("To"), to, search);
+        return createTab("Number of Events", controls, table);
+    }
+
+    private Tab createAvailabilityTab() {
+        DatePicker date = createDatePicker(LocalDate.now());
+        Button search = new Button("Find Available Officers");
+        search.setOnAction(action -> {
+            String chosenDate = toUKDate(date.getValue());
+            if (chosenDate != null) {
+                runQuery("Available officers on " + chosenDate, () -> findAvailableOfficers(chosenDate),
+                        availableOfficers);
+            }
+        });
+        TableView<AvailableOfficer> table = new TableView<>(availableOfficers);
+        table.getColumns().add(createColumn("Available Officer", AvailableOfficer::getName));
+        table.getColumns().add(createColumn("Events that Week", AvailableOfficer::getEventsThatWeek));
+        table.getColumns().add(createColumn("Compared to Average for -2 weeks + 2 weeks",
+                AvailableOfficer::getComparedToAverage));
+        table.getColumns().add(createColumn("Recommended", officer -> officer.isRecommended() ? "Yes" : ""));
+        Node controls = new HBox(10, new Label("Date"), date, search);
+        return createTab("Available Officers", controls, table);
+    }
+
+    /**
+     * Finds the available officers for a date along with their workload and whether they are recommended. This
+     * runs on the background thread.
+     */
+    private static List<AvailableOfficer> findAvailableOfficers(String date) throws Exception {
+        ArrayList<Staff> available = Staff.findAvailableOfficers(date);
+        List<Staff> recommended = Staff.findRecommendedOfficers(date, available);
+        List<AvailableOfficer> rows = new ArrayList<>();
+        for (Staff staff : available) {
+            rows.add(new AvailableOfficer(staff.getName(), Staff.getNumberOfEventsForWeek(staff, date),
+                    staff.getEventsComparedToAverageForMonth(staff, date), recommended.contains(staff)));
+        }
+        return rows;
+    }
+
+    private static TableView<TechnocampsEvent> createEventTable(ObservableList<TechnocampsEvent> items,
+                                                                boolean showStaff) {
+        TableView<TechnocampsEvent> table = new TableView<>(items);
+        table.getColumns().add(createColumn("Date", TechnocampsEvent::getDisplayDate));
+        table.getColumns().add(createColumn("Time", TechnocampsEvent::getDisplayTime));
+        table.getColumns().add(createColumn("Type", TechnocampsEvent::getEventType));
+        table.getColumns().add(createColumn("School", TechnocampsEvent::getSchoolName));
+        table.getColumns().add(createColumn("Key Stage", TechnocampsEvent::getKeyStage));
+        table.getColumns().add(createColumn("Workshop", TechnocampsEvent::getWorkshop));
+        if (showStaff) {
+            table.getColumns().add(createColumn("Delivery Officers", TechnocampsEvent::getDisplayStaffNames));
+        }
+        for (TableColumn<TechnocampsEvent, ?> column : table.getColumns()) {
+            column.setSortable(false);
+        }
+        table.setFixedCellSize(24);
+        return table;
+    }
+
+    private static <S> TableColumn<S, String> createColumn(String title, Function<S, Object> value) {
+        TableColumn<S, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyStringWrapper(String.valueOf(value.apply(cell.getValue()))));
+        return column;
+    }
+
+    private static Tab createTab(String title, Node controls, Node content) {
+        VBox box = new VBox(10, controls, content);
+        VBox.setVgrow(content, Priority.ALWAYS);
+        box.setPadding(new Insets(10));
+        return new Tab(title, box);
+    }
+
+    private static DatePicker createDatePicker(LocalDate date) {
+        DatePicker picker = new DatePicker(date);
+        picker.setPrefWidth(130);
+        return picker;
+    }
+
+    private static LocalDate getStartingDate() {
+        return LocalDate.parse(Main.getStartingDate().toStringRfc3339().substring(0, 10));
+    }
+
+    private static String toUKDate(LocalDate date) {
+        return date == null ? null : Validation.convertLocalDateToUKFormat(date);
+    }
+
+    /**
+     * A row of the available officers table.
+     */
+    public static class AvailableOfficer {
+
+        private final String name;
+        private final int eventsThatWeek;
+        private final double comparedToAverage;
+        private final boolean recommended;
+
+        AvailableOfficer(String name, int eventsThatWeek, double comparedToAverage, boolean recommended) {
+            this.name = name;
+            this.eventsThatWeek = eventsThatWeek;
+            this.comparedToAverage = comparedToAverage;
+            this.recommended = recommended;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getEventsThatWeek() {
+            return eventsThatWeek;
+        }
+
+        public double getComparedToAverage() {
+            return comparedToAverage;
+        }
+
+        public boolean isRecommended() {
+            return recommended;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of counters and latency histograms for the time consuming operations of the system, such as loading
+ * calendars, building reports and recommending officers. Recording is lock-free so it can be used from any thread.
+ */
+public class Metrics {
+
+    public static final String METRICS_FILE = "metrics.json";
+
+    private static final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Adds one to a counter.
+     *
+     * @param name a String of the name of the counter.
+     */
+    public static void increment(String name) {
+        add(name, 1);
+    }
+
+    /**
+     * Adds an amount to a counter.
+     *
+     * @param name   a String of the name of the counter.
+     * @param amount a long of the amount to add.
+     */
+    public static void add(String name, long amount) {
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(name, key -> new LongAdder());
+        }
+        counter.add(amount);
+    }
+
+    /**
+     * Records the time taken by an operation which began at the given time.
+     *
+     * @param name       a String of the name of the operation.
+     * @param startNanos a long of the value of System.nanoTime() when the operation began.
+     */
+    public static void recordLatency(String name, long startNanos) {
+        getHistogram(name).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Getter method for a latency histogram, which is created if it does not exist yet.
+     *
+     * @param name a String of the name of the operation.
+     * @return the LatencyHistogram for the operation.
+     */
+    public static LatencyHistogram getHistogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Getter method for the value of a counter.
+     *
+     * @param name a String of the name of the counter.
+     * @return a long of the value of the counter, 0 if it does not exist.
+     */
+    public static long getCount(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Removes all counters and histograms.
+     */
+    public static void reset() {
+        counters.clear();
+        histograms.clear();
+    }
+
+    /**
+     * Creates a table of all counters and latencies, in milliseconds, for printing to the console.
+     *
+     * @return a String containing the table.
+     */
+    public static String toText() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%-45s %10s %10s %10s %10s %10s %10s%n", "Operation", "Count", "Mean ms",
+                "p50 ms", "p90 ms", "p99 ms", "Max ms"));
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            text.append(String.format("%-45s %10d %10.3f %10.3f %10.3f %10.3f %10.3f%n", entry.getKey(),
+                    histogram.getCount(), histogram.getMeanNanos() / 1e6,
+                    histogram.getPercentileNanos(50) / 1e6, histogram.getPercentileNanos(90) / 1e6,
+                    histogram.getPercentileNanos(99) / 1e6, histogram.getMaxNanos() / 1e6));
+        }
+        text.append(String.format("%n%-45s %10s%n", "Counter", "Value"));
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            text.append(String.format("%-45s %10d%n", entry.getKey(), entry.getValue().sum()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Creates a JSON document of all counters and latencies, in nanoseconds.
+     *
+     * @return a String containing the JSON document.
+     */
+    public static String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"counters\": {");
+        String separator = "\n";
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            json.append(separator).append("    \"").append(entry.getKey()).append("\": ")
+                    .append(entry.getValue().sum());
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"latencies\": {");
+        separator = "\n";
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            json.append(separator).append("    \"").append(entry.getKey()).append("\": {")
+                    .append("\"count\": ").append(histogram.getCount())
+                    .append(", \"meanNanos\": ").append(Math.round(histogram.getMeanNanos()))
+                    .append(", \"p50Nanos\": ").append(histogram.getPercentileNanos(50))
+                    .append(", \"p90Nanos\": ").append(histogram.getPercentileNanos(90))
+                    .append(", \"p99Nanos\": ").append(histogram.getPercentileNanos(99))
+                    .append(", \"maxNanos\": ").append(histogram.getMaxNanos()).append("}");
+            separator = ",\n";
+        }
+        return json.append("\n  }\n}\n").toString();
+    }
+
+    /**
+     * Prints all metrics to the console and writes them as JSON to the metrics file.
+     */
+    public static void dump() {
+        System.out.println(toText());
+        try (FileWriter outputToFile = new FileWriter(METRICS_FILE)) {
+            outputToFile.write(toJson());
+            System.out.println("Metrics written to " + METRICS_FILE);
+        } catch (IOException e) {
+            System.out.println("Could not write metrics to " + METRICS_FILE + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the results of the reports coordinators run again and again, such as the number of events of every officer
+ * for a month or the events of one officer between two dates, so they are only worked out again once the events or
+ * staff have changed.
+ *
+ * Each result is kept with the version of the list of all events and of the list of staff it was worked out from,
+ * and is only used while both are the same. Events and staff are never changed in place, so every change makes a
+ * new version of one of the lists. At most -Dquery.cacheSize results are
+ * kept, 256 by default, and the result used least recently is dropped to make room for a new one.
+ */
+public class QueryCache {
+
+    private static final QueryCache shared = new QueryCache(Integer.getInteger("query.cacheSize", 256));
+
+    private final int maxResults;
+    private final LinkedHashMap<Key, Result> results = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Constructor for QueryCache objects.
+     *
+     * @param maxResults an int of the most results kept, 0 turns the cache off.
+     */
+    public QueryCache(int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Getter method for the cache shared by every report.
+     *
+     * @return the shared QueryCache.
+     */
+    public static QueryCache getShared() {
+        return shared;
+    }
+
+    /**
+     * A report which can be worked out again when its result is not in the cache.
+     *
+     * @param <T> the type of the result.
+     */
+    public interface Query<T> {
+        T run() throws ParseException;
+    }
+
+    /**
+     * Gets the result of a report from the cache, or works it out and keeps it if it is not there or out of date.
+     * The result is shared by every caller so must not be changed.
+     *
+     * @param kind       a String of the name of the report.
+     * @param officer    the officer the report is about, or null for a report of every officer.
+     * @param startDate  a String of the start date in the format dd/MM/yyyy, or null.
+     * @param endDate    a String of the end date in the format dd/MM/yyyy, or null.
+     * @param eventTypes a String of the types of event included, or null for every type.
+     * @param query      works out the result.
+     * @param <T>        the type of the result.
+     * @return the result.
+     * @throws ParseException if a date is incorrectly formatted.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String kind, Staff officer, String startDate, String endDate, String eventTypes,
+                     Query<T> query) throws ParseException {
+        long eventsVersion = TechnocampsEvent.getEventStore().getVersion();
+        long staffVersion = Staff.getStaffStore().getVersion();
+        Key key = new Key(kind, officer == null ? -1 : officer.getStaffId(), startDate, endDate, eventTypes);
+        synchronized (this) {
+            Result result = results.get(key);
+            if (result != null && result.eventsVersion == eventsVersion && result.staffVersion == staffVersion) {
+                Metrics.increment("query.cache.hits");
+                return (T) result.value;
+            }
+        }
+        Metrics.increment("query.cache.misses");
+        T value = query.run();
+        if (maxResults > 0) {
+            synchronized (this) {
+                results.put(key, new Result(value, eventsVersion, staffVersion));
+                Iterator<Result> leastRecentlyUsed = results.values().iterator();
+                while (results.size() > maxResults && leastRecentlyUsed.hasNext()) {
+                    leastRecentlyUsed.next();
+                    leastRecentlyUsed.remove();
+                    Metrics.increment("query.cache.evictions");
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Gets the share of reports answered from the cache since the metrics were last reset.
+     *
+     * @return a double between 0 and 1, 0 if no reports have been run.
+     */
+    public static double getHitRate() {
+        long hits = Metrics.getCount("query.cache.hits");
+        long total = hits + Metrics.getCount("query.cache.misses");
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Getter method for the number of results in the cache.
+     *
+     * @return an int of the number of results.
+     */
+    public synchronized int size() {
+        return results.size();
+    }
+
+    private static class Key {
+
+        private final String kind;
+        private final int officerId;
+        private final String startDate;
+        private final String endDate;
+        private final String eventTypes;
+
+        Key(String kind, int officerId, String startDate, String endDate, String eventTypes) {
+            this.kind = kind;
+            this.officerId = officerId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.eventTypes = eventTypes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return kind.equals(key.kind) && officerId == key.officerId
+                    && Objects.equals(startDate, key.startDate) && Objects.equals(endDate, key.endDate)
+                    && Objects.equals(eventTypes, key.eventTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, officerId, startDate, endDate, eventTypes);
+        }
+    }
+
+    private static class Result {
+
+        private final Object value;
+        private final long eventsVersion;
+        private final long staffVersion;
+
+        Result(Object value, long eventsVersion, long staffVersion) {
+            this.value = value;
+            this.eventsVersion = eventsVersion;
+            this.staffVersion = staffVersion;
+        }
+    }
+}
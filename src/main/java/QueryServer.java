@@ -0,0 +1,307 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A small HTTP server which answers queries about the calendar as JSON, so several coordinators can share one copy
+ * of the calendar instead of each loading their own. Requests are answered in parallel, each from a single version of
+ * the list of all events and of the staff list, so a calendar refresh or a change to the staff never changes them part
+ * way through a request. The endpoints, all GET, are:
+ * <pre>
+ * /events?from=dd/MM/yyyy&amp;to=dd/MM/yyyy&amp;university=SU
+ * /staff/events?name=Staff Name&amp;from=dd/MM/yyyy&amp;to=dd/MM/yyyy
+ * /workload?from=dd/MM/yyyy&amp;to=dd/MM/yyyy
+ * /available?date=dd/MM/yyyy
+ * /recommend?date=dd/MM/yyyy
+ * /metrics
+ * </pre>
+ * The events of one university are found from its own partition of the date index when a university code is given,
+ * "staff" for the AL and Unavailable of staff members, otherwise the events of every university are found.
+ */
+public class QueryServer {
+
+    private final HttpServer server;
+    private final ExecutorService requestThreads;
+
+    /**
+     * Constructor for QueryServer objects. The server is not started until start() is called.
+     *
+     * @param address the address and port to listen on, port 0 picks a free port.
+     * @throws IOException if the address cannot be bound.
+     */
+    public QueryServer(InetSocketAddress address) throws IOException {
+        EventDateIndex.getCurrent();
+        server = HttpServer.create(address, 0);
+        requestThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        server.setExecutor(requestThreads);
+        server.createContext("/events", new QueryHandler("events"));
+        server.createContext("/staff/events", new QueryHandler("staff.events"));
+        server.createContext("/workload", new QueryHandler("workload"));
+        server.createContext("/available", new QueryHandler("available"));
+        server.createContext("/recommend", new QueryHandler("recommend"));
+        server.createContext("/metrics", new QueryHandler("metrics"));
+    }
+
+    /**
+     * Starts answering requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting up to a second for requests being answered.
+     */
+    public void stop() {
+        server.stop(1);
+        requestThreads.shutdown();
+    }
+
+    /**
+     * Getter method for the port the server is listening on.
+     *
+     * @return an int of the port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Answers the requests of one endpoint, recording how long each one takes.
+     */
+    private class QueryHandler implements HttpHandler {
+
+        private final String endpoint;
+
+        QueryHandler(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            long start = System.nanoTime();
+            int status = 200;
+            String body;
+            try {
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    status = 405;
+                    body = toJsonError("only GET is supported");
+                } else if (!exchange.getRequestURI().getPath().replaceAll("/$", "")
+                        .equals(exchange.getHttpContext().getPath())) {
+                    status = 404;
+                    body = toJsonError("not found");
+                } else {
+                    Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+                    body = Staff.getStaffStore().readConsistently(
+                            () -> TechnocampsEvent.getEventStore().readConsistently(() -> answer(query)));
+                }
+            } catch (IllegalArgumentException | ParseException | DateTimeException e) {
+                status = 400;
+                body = toJsonError(e.getMessage());
+            } catch (Exception e) {
+                status = 500;
+                body = toJsonError(e.toString());
+            }
+            byte[] response = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, response.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(response);
+            }
+            Metrics.increment("http.status." + status);
+            Metrics.recordLatency("http." + endpoint, start);
+        }
+
+        private String answer(Map<String, String> query) throws ParseException {
+            StringBuilder json = new StringBuilder();
+            switch (endpoint) {
+                case "events":
+                    String from = getDate(query, "from", false);
+                    LocalDate fromDate = toLocalDate(from == null
+                            ? Validation.convertDateTimeToUKFormat(Main.getStartingDate()) : from);
+                    LocalDate toDate = toLocalDate(getDate(query, "to", false));
+                    String university = query.get("university");
+                    appendEvents(json, university == null || university.isEmpty()
+                            ? EventDateIndex.getCurrent().getEventsBetween(fromDate, toDate)
+                            : EventDateIndex.getCurrent().getEventsBetween(university, fromDate, toDate));
+                    break;
+                case "staff.events":
+                    String name = query.get("name");
+                    if (name == null || !Staff.staffMemberExists(name)) {
+                        throw new IllegalArgumentException("name must be the name of a staff member");
+                    }
+                    from = getDate(query, "from", false);
+                    appendEvents(json, Staff.getStaffEventList(name,
+                            from == null ? Validation.convertDateTimeToUKFormat(Main.getStartingDate()) : from,
+                            getDate(query, "to", false)));
+                    break;
+                case "workload":
+                    from = getDate(query, "from", false);
+                    json.append('[');
+                    for (StaffWorkload workload : Staff.getStaffWorkloads(from,
+                            from == null ? null : getDate(query, "to", false))) {
+                        if (json.length() > 1) {
+                            json.append(',');
+                        }
+                        json.append("{\"name\":").append(toJsonString(workload.getName()))
+                                .append(",\"numberOfEvents\":").append(workload.getNumberOfEvents())
+                                .append(",\"recommendedNumberOfEvents\":")
+                                .append(workload.getRecommendedNumberOfEvents()).append('}');
+                    }
+                    json.append(']');
+                    break;
+                case "available":
+                case "recommend":
+                    String date = getDate(query, "date", true);
+                    List<Staff> officers = Staff.findAvailableOfficers(date);
+                    if (endpoint.equals("recommend")) {
+                        officers = Staff.findRecommendedOfficers(date, officers);
+                    }
+                    json.append('[');
+                    for (Staff staff : officers) {
+                        if (json.length() > 1) {
+                            json.append(',');
+                        }
+                        json.append("{\"name\":").append(toJsonString(staff.getName()))
+                                .append(",\"eventsThatWeek\":").append(Staff.getNumberOfEventsForWeek(staff, date))
+                                .append(",\"comparedToAverage\":")
+                                .append(toJsonNumber(staff.getEventsComparedToAverageForMonth(staff, date)))
+                                .append('}');
+                    }
+                    json.append(']');
+                    break;
+                case "metrics":
+                    json.append(Metrics.toJson());
+                    break;
+            }
+            return json.toString();
+        }
+    }
+
+    private static void appendEvents(StringBuilder json, List<TechnocampsEvent> events) {
+        json.append('[');
+        for (TechnocampsEvent event : events) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(toJsonString(event.getUniqueID()))
+                    .append(",\"date\":").append(toJsonString(event.getDisplayDate()))
+                    .append(",\"time\":").append(toJsonString(event.getDisplayTime()))
+                    .append(",\"type\":").append(toJsonString(event.getEventType()))
+                    .append(",\"university\":").append(toJsonString(event.getUniversityCode()))
+                    .append(",\"school\":").append(toJsonString(event.getSchoolName()))
+                    .append(",\"keyStage\":").append(toJsonString(event.getKeyStage()))
+                    .append(",\"workshop\":").append(toJsonString(event.getWorkshop()))
+                    .append(",\"officers\":[");
+            List<Staff> officers = event.getListOfStaff();
+            for (int i = 0; i < officers.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append(toJsonString(officers.get(i).getName()));
+            }
+            json.append("]}");
+        }
+        json.append(']');
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        try {
+            for (String parameter : rawQuery.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals > 0) {
+                    query.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+                            URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return query;
+    }
+
+    private static String getDate(Map<String, String> query, String parameter, boolean required)
+            throws ParseException {
+        String date = query.get(parameter);
+        if (date == null || date.isEmpty()) {
+            if (required) {
+                throw new IllegalArgumentException(parameter + "=dd/MM/yyyy is required");
+            }
+            return null;
+        }
+        Validation.checkValidDate(date);
+        return date;
+    }
+
+    private static LocalDate toLocalDate(String ukDate) throws ParseException {
+        if (ukDate == null) {
+            return null;
+        }
+        return Validation.convertStringToDate(ukDate).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static String toJsonError(String message) {
+        return "{\"error\":" + toJsonString(message) + "}";
+    }
+
+    /**
+     * Writes a number as JSON, null if it is NaN or infinite, such as a comparison with the average when there are no
+     * full time officers, as JSON has no way to write them.
+     */
+    private static String toJsonNumber(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.valueOf(value);
+    }
+
+    private static String toJsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder("\"");
+        for (char character : value.toCharArray()) {
+            switch (character) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (character < 0x20) {
+                        json.append(String.format("\\u%04x", (int) character));
+                    } else {
+                        json.append(character);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,23 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for recommending delivery officers for a workshop.
+ */
+@Name("technocamps.Recommendation")
+@Label("Officer Recommendation")
+@Category({"Technocamps", "Scheduling"})
+@Description("Delivery officers scored and recommended for a workshop")
+public class RecommendationEvent extends jdk.jfr.Event {
+
+    @Label("Date")
+    String date;
+
+    @Label("Candidates Scored")
+    int candidatesScored;
+
+    @Label("Officers Recommended")
+    int officersRecommended;
+}
@@ -7,20 +7,24 @@ import java.text.ParseException;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
 
 import static java.time.temporal.TemporalAdjusters.*;
 
 public class Staff {
 
-    private static final ArrayList<Staff> allStaff = new ArrayList<>();
-    private static final ArrayList<Staff> availableOfficers = new ArrayList<>();
-    private static int staffNumber = 1;
-    private String name;
-    private String email;
-    private int timeCommitment;
-    private boolean adminPrivileges;
-    private int uniqueStaffNumber;
-    private boolean isDeliveryOfficer;
+    private static final VersionedStore<Staff> allStaff = new VersionedStore<>("staff");
+    private static final String OFFICER_EVENT_TYPES = "Workshop,Technoclub,Technoteach,AL,Unavailable";
+    private static final List<Staff> staffById = new CopyOnWriteArrayList<>();
+    private static volatile StaffIndex staffIndex = new StaffIndex(-1, Collections.emptyMap(), Collections.emptyMap());
+    private final String name;
+    private final String initials;
+    private final String email;
+    private final int timeCommitment;
+    private final boolean adminPrivileges;
+    private final boolean isDeliveryOfficer;
+    private volatile int staffId = -1;
 
     /**
      * Constructor for objects of the class Staff.
@@ -32,11 +36,23 @@ public class Staff {
     public Staff(String name, String email, int timeCommitment, boolean adminPrivileges, boolean isDeliveryOfficer) {
         this.email = email;
         this.name = name;
+        this.initials = SummaryParser.getInitials(name);
         this.timeCommitment = timeCommitment;
         this.adminPrivileges = adminPrivileges;
         this.isDeliveryOfficer = isDeliveryOfficer;
     }
 
+    /**
+     * Constructor for a changed copy of a staff member, which keeps their staff id.
+     *
+     * @param staff the Staff member to copy.
+     */
+    private Staff(Staff staff, String name, String email, int timeCommitment, boolean adminPrivileges,
+                  boolean isDeliveryOfficer) {
+        this(name, email, timeCommitment, adminPrivileges, isDeliveryOfficer);
+        this.staffId = staff.staffId;
+    }
+
     /**
      * Getter method for the name of the delivery officer.
      *
@@ -47,14 +63,27 @@ public class Staff {
     }
 
     /**
-     * Setter method for the name of the delivery Officer, also updates the external text file.
+     * Setter method for the name of the delivery Officer, also updates the external text file. The staff member is
+     * not changed; a renamed copy replaces them in the list of all staff, see replace().
      *
      * @param name a String of the new name of the delivery officer.
+     * @return the renamed copy of the staff member.
      * @throws IOException if error in writing to Staff details text file.
      */
-    public void setName(String name) throws IOException {
-        this.name = name;
+    public Staff setName(String name) throws IOException {
+        Staff renamed = replace(staff -> new Staff(staff, name, staff.email, staff.timeCommitment,
+                staff.adminPrivileges, staff.isDeliveryOfficer));
         updateStaffInformation();
+        return renamed;
+    }
+
+    /**
+     * Getter method for the initials of the staff member, used to find their entries in their personal calendar.
+     *
+     * @return a String of the first letters of their first and last names.
+     */
+    public String getInitials() {
+        return initials;
     }
 
     /**
@@ -67,14 +96,18 @@ public class Staff {
     }
 
     /**
-     * Setter method for the percentage time commitment of the delivery officer.
+     * Setter method for the percentage time commitment of the delivery officer. The staff member is not changed; a
+     * copy replaces them in the list of all staff, see replace().
      *
      * @param timeCommitment an int of the new percentage time commitment of the delivery officer.
+     * @return the changed copy of the staff member.
      * @throws IOException if error in writing to Staff details text file.
      */
-    public void setTimeCommitment(int timeCommitment) throws IOException {
-        this.timeCommitment = timeCommitment;
+    public Staff setTimeCommitment(int timeCommitment) throws IOException {
+        Staff changed = replace(staff -> new Staff(staff, staff.name, staff.email, timeCommitment,
+                staff.adminPrivileges, staff.isDeliveryOfficer));
         updateStaffInformation();
+        return changed;
     }
 
     /**
@@ -87,32 +120,30 @@ public class Staff {
     }
 
     /**
-     * Setter method for the email address of the delivery officer.
+     * Setter method for the email address of the delivery officer. The staff member is not changed; a copy replaces
+     * them in the list of all staff, see replace().
      *
      * @param email String of the new email address.
+     * @return the changed copy of the staff member.
      * @throws IOException if error in writing to Staff details text file.
      */
-    public void setEmail(String email) throws IOException {
-        this.email = email;
+    public Staff setEmail(String email) throws IOException {
+        Staff changed = replace(staff -> new Staff(staff, staff.name, email, staff.timeCommitment,
+                staff.adminPrivileges, staff.isDeliveryOfficer));
         updateStaffInformation();
+        return changed;
     }
 
     /**
-     * Getter method for unique staff number.
+     * Getter method for unique staff number, the place of the staff member in the list of all staff, which is sorted
+     * by name. The numbers are worked out once for each version of the list rather than kept by each staff member,
+     * so an older version of the list keeps its own numbers.
      *
-     * @return an int containing the unique Staff number.
+     * @return an int containing the unique Staff number, or 0 if the staff member is not in the list of all staff.
      */
     public int getUniqueStaffNumber() {
-        return uniqueStaffNumber;
-    }
-
-    /**
-     * Setter method for the unique staff number.
-     *
-     * @param uniqueStaffNumber an int for the new unique staff number.
-     */
-    public void setUniqueStaffNumber(int uniqueStaffNumber) {
-        this.uniqueStaffNumber = uniqueStaffNumber;
+        Integer number = getStaffIndex().numbers.get(this);
+        return number == null ? 0 : number;
     }
 
     /**
@@ -125,22 +156,106 @@ public class Staff {
     }
 
     /**
-     * Setter method for delivery officer admin privileges.
+     * Setter method for delivery officer admin privileges. The staff member is not changed; a copy replaces them in
+     * the list of all staff, see replace().
      *
      * @param adminPrivileges boolean value, true for admin privileges, false for none.
+     * @return the changed copy of the staff member.
      * @throws IOException if error in writing to Staff details text file.
      */
-    public void setAdminPrivileges(boolean adminPrivileges) throws IOException {
-        this.adminPrivileges = adminPrivileges;
+    public Staff setAdminPrivileges(boolean adminPrivileges) throws IOException {
+        Staff changed = replace(staff -> new Staff(staff, staff.name, staff.email, staff.timeCommitment,
+                adminPrivileges, staff.isDeliveryOfficer));
         updateStaffInformation();
+        return changed;
     }
 
     public boolean isDeliveryOfficer() {
         return isDeliveryOfficer;
     }
 
-    public void setDeliveryOfficer(boolean deliveryOfficer) {
-        isDeliveryOfficer = deliveryOfficer;
+    public Staff setDeliveryOfficer(boolean deliveryOfficer) {
+        return replace(staff -> new Staff(staff, staff.name, staff.email, staff.timeCommitment,
+                staff.adminPrivileges, deliveryOfficer));
+    }
+
+    /**
+     * Replaces the version of this staff member in the list of all staff with a changed copy, as a single new
+     * version. Staff in the list are never changed, as every snapshot of the list and every index built from one
+     * shares them. The copy keeps the staff id, and getStaffById() gives the copy from then on, so the events and
+     * workload of the staff member, which are kept by staff id, belong to the copy.
+     *
+     * @param change makes the changed copy from the latest version of the staff member.
+     * @return the changed copy, which is not added to the list of all staff if the staff member is not in it.
+     */
+    private Staff replace(UnaryOperator<Staff> change) {
+        int id = staffId;
+        if (id < 0) {                                       //Never in the list of all staff, so nothing to replace
+            return change.apply(this);
+        }
+        synchronized (staffById) {                          //One staff member is replaced at a time
+            Staff latest = staffById.get(id);
+            Staff changed = change.apply(latest);
+            if (allStaff.getItems().contains(latest)) {
+                allStaff.update(staffList -> {
+                    int position = staffList.indexOf(latest);
+                    if (position >= 0) {
+                        staffList.set(position, changed);
+                        sortByName(staffList);
+                    }
+                });
+            }
+            staffById.set(id, changed);
+            return changed;
+        }
+    }
+
+    /**
+     * Getter method for the id of the staff member, used to keep the staff assigned to an event as a BitSet. Ids
+     * are given when a staff member is first added to the list of all staff, by addNewStaffMember, addStaffMembers
+     * or populateStaffList, starting from 0, and never change, unlike the unique staff number, which changes when
+     * staff are added or renamed. Copies made by the setters keep the id, and a staff member who is removed and
+     * added again gets their old id back. Ids are never reused, as events may still hold the id of a staff member
+     * who has been removed, so the largest is one less than the number of staff members ever added.
+     *
+     * @return an int of the id.
+     * @throws IllegalStateException if the staff member has never been added to the list of all staff.
+     */
+    public int getStaffId() {
+        int id = staffId;
+        if (id < 0) {
+            throw new IllegalStateException(name + " has never been added to the list of all staff, so has no id");
+        }
+        return id;
+    }
+
+    /**
+     * Gives an id to each staff member added to the list of all staff who has not had one, and makes each the
+     * version getStaffById() gives, before they are added.
+     *
+     * @param staffMembers a Collection of the Staff objects being added.
+     */
+    private static void giveStaffIds(Collection<Staff> staffMembers) {
+        synchronized (staffById) {
+            for (Staff staff : staffMembers) {
+                if (staff.staffId < 0) {
+                    staffById.add(staff);
+                    staff.staffId = staffById.size() - 1;
+                } else {
+                    staffById.set(staff.staffId, staff);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the staff member with an id from getStaffId(), including a staff member who has since been removed.
+     *
+     * @param staffId an int of the id.
+     * @return the latest version of the Staff member with the id.
+     */
+    public static Staff getStaffById(int staffId) {
+        return staffById.get(staffId);
     }
 
     /**
@@ -151,11 +266,8 @@ public class Staff {
     private ArrayList<TechnocampsEvent> getAllEvents() {
         ArrayList<TechnocampsEvent> listEvents = new ArrayList<>();
         for (TechnocampsEvent event : TechnocampsEvent.getAllEvents()) {
-            for (Staff staff : event.getListOfStaff()) {
-                String officerName = staff.getName().toUpperCase();
-                if (officerName.equals(name.toUpperCase())) {
-                    listEvents.add(event);
-                }
+            if (event.isAssigned(this)) {
+                listEvents.add(event);
             }
         }
         return listEvents;
@@ -176,15 +288,11 @@ public class Staff {
         Date firstSearchDate = Validation.convertStringToDate(startDate);
         ArrayList<TechnocampsEvent> listEvents = new ArrayList<>();
         for (TechnocampsEvent event : TechnocampsEvent.getAllEvents()) {
-            String eventDate = event.getDateOfEvent().toStringRfc3339();
-            Date eventDateFormatted = Validation.convertDateTimeToUKFormat(eventDate);
-            for (Staff staff : event.getListOfStaff()) {
-                String officerName = staff.getName().toUpperCase();
-                if (officerName.equals(name.toUpperCase())) {
-
-                    if (firstSearchDate.compareTo(eventDateFormatted) <= 0) {
-                        listEvents.add(event);
-                    }
+            if (event.isAssigned(this)) {
+                String eventDate = event.getDateOfEvent().toStringRfc3339();
+                Date eventDateFormatted = Validation.convertDateTimeToUKFormat(eventDate);
+                if (firstSearchDate.compareTo(eventDateFormatted) <= 0) {
+                    listEvents.add(event);
                 }
             }
         }
@@ -208,15 +316,12 @@ public class Staff {
         Date secondSearchDate = Validation.convertStringToDate(endDate);
         ArrayList<TechnocampsEvent> listEvents = new ArrayList<>();
         for (TechnocampsEvent event : TechnocampsEvent.getAllEvents()) {
-            String eventDate = event.getDateOfEvent().toStringRfc3339();
-            Date eventDateFormatted = Validation.convertDateTimeToUKFormat(eventDate);
-            for (Staff staff : event.getListOfStaff()) {
-                String officerName = staff.getName().toUpperCase();
-                if (officerName.equals(name.toUpperCase())) {
-                    if (firstSearchDate.compareTo(eventDateFormatted) <= 0 &&
-                            secondSearchDate.compareTo(eventDateFormatted) >= 0) {
-                        listEvents.add(event);
-                    }
+            if (event.isAssigned(this)) {
+                String eventDate = event.getDateOfEvent().toStringRfc3339();
+                Date eventDateFormatted = Validation.convertDateTimeToUKFormat(eventDate);
+                if (firstSearchDate.compareTo(eventDateFormatted) <= 0 &&
+                        secondSearchDate.compareTo(eventDateFormatted) >= 0) {
+                    listEvents.add(event);
                 }
             }
         }
@@ -231,19 +336,7 @@ public class Staff {
      * @throws ParseException if dates are incorrectly formatted.
      */
     private void printOfficerEvents(String name, String startDate) throws ParseException {
-        int numberEvents = getOfficerNumberOfEvents(startDate);
-        System.out.println("Delivery Officer: " + getName() + " | Number of Events: " + numberEvents);
-        if (getAllEvents().size() == 0) {
-            System.out.println("No Events assigned.");
-        } else {
-            for (TechnocampsEvent event : getAllEvents(name, startDate)) {
-                String eventType = event.getEventType();
-                if (eventType.equals("Workshop") || eventType.equals("Technoclub") || eventType.equals("Technoteach")
-                        || eventType.equals("AL") || eventType.equals("Unavailable")) {
-                    event.printOfficerEventDetails();
-                }
-            }
-        }
+        printOfficerEvents(name, startDate, null);
     }
 
     /**
@@ -255,17 +348,16 @@ public class Staff {
      * @throws ParseException if dates are incorrectly formatted.
      */
     private void printOfficerEvents(String name, String startDate, String endDate) throws ParseException {
-        int numberEvents = getOfficerNumberOfEvents(startDate, endDate);
+        QueryCache cache = QueryCache.getShared();
+        int numberEvents = cache.get("numberOfEvents", this, startDate, endDate, null,
+                () -> endDate == null ? getOfficerNumberOfEvents(startDate)
+                        : getOfficerNumberOfEvents(startDate, endDate));
         System.out.println("Delivery Officer: " + getName() + " | Number of Events: " + numberEvents);
-        if (getAllEvents().size() == 0) {
+        if (cache.get("assignedEvents", this, null, null, null, () -> getAllEvents().size()) == 0) {
             System.out.println("No Events assigned.");
         } else {
-            for (TechnocampsEvent event : getAllEvents(name, startDate, endDate)) {
-                String eventType = event.getEventType();
-                if (eventType.equals("Workshop") || eventType.equals("Technoclub") || eventType.equals("Technoteach") || eventType.equals("AL")
-                        || eventType.equals("Unavailable")) {
-                    event.printOfficerEventDetails();
-                }
+            for (TechnocampsEvent event : getStaffEventList(name, startDate, endDate)) {
+                event.printOfficerEventDetails();
             }
         }
     }
@@ -328,7 +420,7 @@ public class Staff {
      * @return a double containing the average number of events for 100% delivery officers.
      * @throws ParseException if date entered isn't formatted correctly.
      */
-    private double averageOfficerNumberOfEvents(String startDate, String endDate) throws ParseException {
+    double averageOfficerNumberOfEvents(String startDate, String endDate) throws ParseException {
         double totalNumberOfEvents = 0;
         double currentNumberOfEvents;
         double counter = 0;
@@ -395,15 +487,12 @@ public class Staff {
     private int getOfficerNumberOfEvents() {
         double counter = 0.0;
         for (TechnocampsEvent event : TechnocampsEvent.getAllEvents()) {
-            for (Staff staff : event.getListOfStaff()) {
-                String officerName = staff.getName().toUpperCase();
-                if (officerName.equals(name.toUpperCase())) {
-                    String eventType = event.getEventType();
-                    if (eventType.equals("Workshop") || eventType.equals("Technoteach")) {
-                        counter++;
-                    } else if (eventType.equals("Technoclub")) {
-                        counter = counter + 0.5;
-                    }
+            if (event.isAssigned(this)) {
+                String eventType = event.getEventType();
+                if (eventType.equals("Workshop") || eventType.equals("Technoteach")) {
+                    counter++;
+                } else if (eventType.equals("Technoclub")) {
+                    counter = counter + 0.5;
                 }
             }
         }
@@ -421,18 +510,14 @@ public class Staff {
         Date firstSearchDate = Validation.convertStringToDate(startDate);
         double counter = 0.0;
         for (TechnocampsEvent event : TechnocampsEvent.getAllEvents()) {
-            Date eventDate = Validation.convertDateTimeToUKFormat(event.getDateOfEvent().toStringRfc3339());
-            for (Staff staff : event.getListOfStaff()) {
-                String officerName = staff.getName().toUpperCase();
-                String eventType;
-                if (officerName.equals(name.toUpperCase())) {
-                    if (firstSearchDate.compareTo(eventDate) <= 0) {
-                        eventType = event.getEventType();
-                        if (eventType.equals("Workshop") || eventType.equals("Technoteach")) {
-                            counter++;
-                        } else if (eventType.equals("Technoclub")) {
-                            counter = counter + 0.5;
-                        }
+            if (event.isAssigned(this)) {
+                Date eventDate = Validation.convertDateTimeToUKFormat(event.getDateOfEvent().toStringRfc3339());
+                if (firstSearchDate.compareTo(eventDate) <= 0) {
+                    String eventType = event.getEventType();
+                    if (eventType.equals("Workshop") || eventType.equals("Technoteach")) {
+                        counter++;
+                    } else if (eventType.equals("Technoclub")) {
+                        counter = counter + 0.5;
                     }
                 }
             }
@@ -449,23 +534,20 @@ public class Staff {
      * @return an int of the number of events for the delivery officer.
      * @throws ParseException when date entered isn't formatted correctly.
      */
-    private int getOfficerNumberOfEvents(String startDate, String endDate) throws ParseException {
+    int getOfficerNumberOfEvents(String startDate, String endDate) throws ParseException {
         Date firstSearchDate = Validation.convertStringToDate(startDate);
         Date secondSearchDate = Validation.convertStringToDate(endDate);
         double counter = 0.0;
         for (TechnocampsEvent event : TechnocampsEvent.getAllEvents()) {
-            Date eventDate = Validation.convertDateTimeToUKFormat(event.getDateOfEvent().toStringRfc3339());
-            for (Staff staff : event.getListOfStaff()) {
-                String officerName = staff.getName().toUpperCase();
-                String eventType = event.getEventType();
-                if (officerName.equals(name.toUpperCase())) {
-                    if (firstSearchDate.compareTo(eventDate) <= 0 &&
-                            secondSearchDate.compareTo(eventDate) >= 0) {
-                        if (eventType.equals("Workshop") || eventType.equals("Technoteach")) {
-                            counter++;
-                        } else if (eventType.equals("Technoclub")) {
-                            counter = counter + 0.5;
-                        }
+            if (event.isAssigned(this)) {
+                Date eventDate = Validation.convertDateTimeToUKFormat(event.getDateOfEvent().toStringRfc3339());
+                if (firstSearchDate.compareTo(eventDate) <= 0 &&
+                        secondSearchDate.compareTo(eventDate) >= 0) {
+                    String eventType = event.getEventType();
+                    if (eventType.equals("Workshop") || eventType.equals("Technoteach")) {
+                        counter++;
+                    } else if (eventType.equals("Technoclub")) {
+                        counter = counter + 0.5;
                     }
                 }
             }
@@ -474,11 +556,76 @@ public class Staff {
     }
 
     /**
-     * Getter for list of all staff.
+     * Getter for list of all staff. The list is a snapshot which cannot be changed and is not affected by staff
+     * being added, removed or changed later.
      *
-     * @return an ArrayList containing Delivery Officers.
+     * @return an unmodifiable List containing Delivery Officers.
      */
-    public static ArrayList<Staff> getAllStaffList() {
+    public static List<Staff> getAllStaffList() {
+        return allStaff.getItems();
+    }
+
+    /**
+     * Finds the staff members with a set of initials, used to work out whose Annual Leave or Unavailability an
+     * "XY: AL" calendar entry is. The initials of every staff member are indexed once for each version of the staff
+     * list, so finding them does not search the list.
+     *
+     * @param initials a String of the initials, such as "XY".
+     * @return an unmodifiable List of the staff members with the initials, more than one if they share initials,
+     * or an empty List if there are none.
+     */
+    public static List<Staff> getStaffWithInitials(String initials) {
+        List<Staff> staffWithInitials = getStaffIndex().staffByInitials.get(initials);
+        return staffWithInitials == null ? Collections.<Staff>emptyList() : staffWithInitials;
+    }
+
+    /**
+     * Gets the index of the current version of the staff list, building it if the staff have changed since it was
+     * last built.
+     */
+    private static StaffIndex getStaffIndex() {
+        VersionedStore.Snapshot<Staff> snapshot = allStaff.getSnapshot();
+        StaffIndex index = staffIndex;
+        if (index.version != snapshot.getVersion()) {
+            Map<String, List<Staff>> staffByInitials = new HashMap<>();
+            Map<Staff, Integer> numbers = new HashMap<>();
+            for (Staff staff : snapshot.getItems()) {
+                staffByInitials.computeIfAbsent(staff.getInitials(), key -> new ArrayList<>(1)).add(staff);
+                numbers.put(staff, numbers.size() + 1);
+            }
+            for (Map.Entry<String, List<Staff>> entry : staffByInitials.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+            index = new StaffIndex(snapshot.getVersion(), staffByInitials, numbers);
+            if (snapshot.getVersion() > staffIndex.version) {
+                staffIndex = index;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The staff members of one version of the staff list by their initials, and their unique staff numbers.
+     */
+    private static final class StaffIndex {
+
+        private final long version;
+        private final Map<String, List<Staff>> staffByInitials;
+        private final Map<Staff, Integer> numbers;
+
+        StaffIndex(long version, Map<String, List<Staff>> staffByInitials, Map<Staff, Integer> numbers) {
+            this.version = version;
+            this.staffByInitials = staffByInitials;
+            this.numbers = numbers;
+        }
+    }
+
+    /**
+     * Getter method for the store of all staff, used to change the staff list and to find its version.
+     *
+     * @return the VersionedStore of all staff.
+     */
+    public static VersionedStore<Staff> getStaffStore() {
         return allStaff;
     }
 
@@ -488,34 +635,39 @@ public class Staff {
      * @param date a String in the format dd/mm/yyyy
      */
     public static void displayAvailableOfficers(String date) throws ParseException {
-        availableOfficers.clear();
-        availableOfficers.addAll(Staff.getAllStaffList());
+        ArrayList<Staff> availableOfficers = findAvailableOfficers(date);
+        System.out.println("Available Officers: | Events that Week | Events Compared to Average for -2 weeks + 2 weeks");
+        for (Staff staff : availableOfficers) {
+            System.out.printf("%-25s\t %-15s %20s", staff.getName(),
+                    getNumberOfEventsForWeek(staff.getName(), date),
+                    staff.getEventsComparedToAverageForMonth(staff.getName(), date));
+            System.out.println();
+        }
+        System.out.println();
+        recommendOfficerForWorkshop(date, availableOfficers);
+    }
+
+    /**
+     * Finds the Delivery Officers who are not assigned to any event on the input date.
+     *
+     * @param date a String in the format dd/mm/yyyy
+     * @return a new ArrayList of the available Delivery Officers.
+     */
+    public static ArrayList<Staff> findAvailableOfficers(String date) {
+        BitSet assignedStaff = new BitSet();
         for (TechnocampsEvent event : TechnocampsEvent.getAllEvents()) {
             DateTime eventDate = event.getDateOfEvent();
-            if (Validation.convertDateTimeToUKFormat(eventDate).equals(date)) {
-                for (Staff staff : event.getListOfStaff()) {
-                    for (Staff availableOfficer : new ArrayList<>(availableOfficers)) {
-                        if (staff.getName().equals(availableOfficer.getName())) {
-                            availableOfficers.remove(availableOfficer);
-                        }
-                        if (!availableOfficer.isDeliveryOfficer()) {
-                            availableOfficers.remove(availableOfficer);
-                        }
-                    }
-                }
+            if (event.hasStaff() && Validation.convertDateTimeToUKFormat(eventDate).equals(date)) {
+                event.addStaffIdsTo(assignedStaff);
             }
         }
-        System.out.println("Available Officers: | Events that Week | Events Compared to Average for -2 weeks + 2 weeks");
-        for (Staff staff : availableOfficers) {
-            if(staff.isDeliveryOfficer()) {
-                System.out.printf("%-25s\t %-15s %20s", staff.getName(),
-                        getNumberOfEventsForWeek(staff.getName(), date),
-                        staff.getEventsComparedToAverageForMonth(staff.getName(), date));
-                System.out.println();
+        ArrayList<Staff> availableOfficers = new ArrayList<>();
+        for (Staff staff : Staff.getAllStaffList()) {
+            if (staff.isDeliveryOfficer() && !assignedStaff.get(staff.getStaffId())) {
+                availableOfficers.add(staff);
             }
         }
-        System.out.println();
-        recommendOfficerForWorkshop(date, availableOfficers);
+        return availableOfficers;
     }
 
     /**
@@ -616,16 +768,29 @@ public class Staff {
      * @throws IOException if issues with writing to staff details text file.
      */
     public static void addNewStaffMember(String fullName, String email, int timeCommitment, boolean adminPrivileges, boolean isDeliveryOfficer) throws IOException {
-        Staff.getAllStaffList().add(new Staff(fullName, email, timeCommitment, adminPrivileges, isDeliveryOfficer));
-        allStaff.sort(Comparator.comparing(Staff::getName)); //Sorts Delivery Officers by name.
-        staffNumber = 1;
-        for (Staff officer : allStaff) {
-            officer.setUniqueStaffNumber(staffNumber);
-            staffNumber++;
-        }
+        Staff newStaffMember = new Staff(fullName, email, timeCommitment, adminPrivileges, isDeliveryOfficer);
+        giveStaffIds(Collections.singletonList(newStaffMember));
+        allStaff.update(staffList -> {
+            staffList.add(newStaffMember);
+            sortByName(staffList);
+        });
         updateStaffInformation();
     }
 
+    /**
+     * Adds several staff members to the list of all staff without writing them to the external staff details text
+     * file. Used when loading generated rosters for testing.
+     *
+     * @param staffMembers a Collection of Staff objects to be added.
+     */
+    public static void addStaffMembers(Collection<Staff> staffMembers) {
+        giveStaffIds(staffMembers);
+        allStaff.update(staffList -> {
+            staffList.addAll(staffMembers);
+            sortByName(staffList);
+        });
+    }
+
     /**
      * Removes staff members from the list of staff and the external staff details text file.
      *
@@ -633,16 +798,18 @@ public class Staff {
      * @throws IOException if issues with writing to staff details text file.
      */
     public static void removeStaffMember(Staff officerToDelete) throws IOException {
-        Staff.getAllStaffList().remove(officerToDelete);
-        allStaff.sort(Comparator.comparing(Staff::getName)); //Sorts Delivery Officers by name.
-        staffNumber = 1;
-        for (Staff officer : allStaff) {
-            officer.setUniqueStaffNumber(staffNumber);
-            staffNumber++;
-        }
+        Staff latest = getStaffById(officerToDelete.getStaffId());  //The officer may have been replaced by a copy
+        allStaff.update(staffList -> {
+            staffList.remove(latest);
+            sortByName(staffList);
+        });
         updateStaffInformation();
     }
 
+    private static void sortByName(List<Staff> staffList) {
+        staffList.sort(Comparator.comparing(Staff::getName)); //Sorts Delivery Officers by name.
+    }
+
     /**
      * Prints a list of all future events, for a named Officer, after a given date.
      *
@@ -686,11 +853,8 @@ public class Staff {
         String startDate = Validation.convertDateTimeToUKFormat(Main.getStartingDate());
         System.out.println("All past and future Events Since: " + startDate);
         System.out.println("Delivery Officer  |  Number Of Events  | Recommended number of events for period:");
-        for (Staff staff : Staff.getAllStaffList()) {
-            if (staff.isDeliveryOfficer()) {
-                staff.printOfficerNumberOfEvents();
-                System.out.println();
-            }
+        for (StaffWorkload workload : getStaffWorkloads(null, null)) {
+            workload.printWorkload();
         }
     }
 
@@ -703,11 +867,8 @@ public class Staff {
     public static void printStaffNumberOfEvents(String startDate) throws ParseException {
         System.out.println("Future Events from " + startDate);
         System.out.println("Delivery Officer  |  Number Of Events  | Recommended number of events for period:");
-        for (Staff staff : Staff.getAllStaffList()) {
-            if (staff.isDeliveryOfficer()) {
-                staff.printOfficerNumberOfEvents(startDate);
-                System.out.println();
-            }
+        for (StaffWorkload workload : getStaffWorkloads(startDate, null)) {
+            workload.printWorkload();
         }
     }
 
@@ -721,12 +882,99 @@ public class Staff {
     public static void printStaffNumberOfEvents(String startDate, String endDate) throws ParseException {
         System.out.println("Events Between: " + startDate + " - " + endDate);
         System.out.println("Delivery Officer  |  Number Of Events  | Recommended number of events for period:");
+        for (StaffWorkload workload : getStaffWorkloads(startDate, endDate)) {
+            workload.printWorkload();
+        }
+    }
+
+    /**
+     * Gets the number of events and the recommended number of events for every delivery officer. The recommended
+     * number is the average for 100% delivery officers scaled by the officer's time commitment.
+     *
+     * @param startDate a String in the format (dd/mm/yyyy), or null for all events.
+     * @param endDate   a String in the format (dd/mm/yyyy), or null for an open end date.
+     * @return an ArrayList with the workload of each delivery officer.
+     * @throws ParseException if dates are incorrectly formatted.
+     */
+    public static ArrayList<StaffWorkload> getStaffWorkloads(String startDate, String endDate)
+            throws ParseException {
+        return new ArrayList<>(QueryCache.getShared().get("workloads", null, startDate, endDate, null,
+                () -> findStaffWorkloads(startDate, endDate)));
+    }
+
+    private static ArrayList<StaffWorkload> findStaffWorkloads(String startDate, String endDate)
+            throws ParseException {
+        long start = System.nanoTime();
+        ArrayList<StaffWorkload> workloads = new ArrayList<>();
+        ArrayList<Staff> deliveryOfficers = new ArrayList<>();
         for (Staff staff : Staff.getAllStaffList()) {
             if (staff.isDeliveryOfficer()) {
-                staff.printOfficerNumberOfEvents(startDate, endDate);
-                System.out.println();
+                deliveryOfficers.add(staff);
             }
         }
+        if (deliveryOfficers.isEmpty()) {
+            return workloads;
+        }
+        Staff firstOfficer = deliveryOfficers.get(0);
+        double average;                     //The average is the same for every officer so is only calculated once
+        if (startDate == null) {
+            average = firstOfficer.averageOfficerNumberOfEvents();
+        } else if (endDate == null) {
+            average = firstOfficer.averageOfficerNumberOfEvents(startDate);
+        } else {
+            average = firstOfficer.averageOfficerNumberOfEvents(startDate, endDate);
+        }
+        for (Staff staff : deliveryOfficers) {
+            int numberOfEvents;
+            if (startDate == null) {
+                numberOfEvents = staff.getOfficerNumberOfEvents();
+            } else if (endDate == null) {
+                numberOfEvents = staff.getOfficerNumberOfEvents(startDate);
+            } else {
+                numberOfEvents = staff.getOfficerNumberOfEvents(startDate, endDate);
+            }
+            workloads.add(new StaffWorkload(staff.getName(), numberOfEvents,
+                    Math.round(average * (staff.getTimeCommitment() / 100.0))));
+        }
+        Metrics.recordLatency("staff.findStaffWorkloads", start);
+        return workloads;
+    }
+
+    /**
+     * Gets the teaching commitments and leave of a named Officer after a given date, and before an end date if one
+     * is given.
+     *
+     * @param name      the name of a delivery Officer.
+     * @param startDate a String in the format (dd/mm/yyyy)
+     * @param endDate   a String in the format (dd/mm/yyyy), or null for an open end date.
+     * @return an ArrayList of the officer's events, empty if no officer has that name.
+     * @throws ParseException if dates are incorrectly formatted.
+     */
+    public static ArrayList<TechnocampsEvent> getStaffEventList(String name, String startDate, String endDate)
+            throws ParseException {
+        Staff staff = findStaffMember(name);
+        if (staff == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(QueryCache.getShared().get("staffEvents", staff, startDate, endDate, OFFICER_EVENT_TYPES,
+                () -> findStaffEventList(staff, startDate, endDate)));
+    }
+
+    private static ArrayList<TechnocampsEvent> findStaffEventList(Staff staff, String startDate, String endDate)
+            throws ParseException {
+        long start = System.nanoTime();
+        ArrayList<TechnocampsEvent> officerEvents = new ArrayList<>();
+        ArrayList<TechnocampsEvent> events = endDate == null ? staff.getAllEvents(staff.getName(), startDate)
+                : staff.getAllEvents(staff.getName(), startDate, endDate);
+        for (TechnocampsEvent event : events) {
+            String eventType = event.getEventType();
+            if (eventType.equals("Workshop") || eventType.equals("Technoclub") || eventType.equals("Technoteach")
+                    || eventType.equals("AL") || eventType.equals("Unavailable")) {
+                officerEvents.add(event);
+            }
+        }
+        Metrics.recordLatency("staff.findStaffEventList", start);
+        return officerEvents;
     }
 
     /**
@@ -738,11 +986,12 @@ public class Staff {
         FileWriter outputToFile = new FileWriter
                 ("src/Staff.txt");
         int counter = 0;
-        for (Staff officer : allStaff) {
+        List<Staff> staffList = allStaff.getItems();
+        for (Staff officer : staffList) {
             outputToFile.write(officer.getName() + ", " + officer.getEmail() + ", " + officer.getTimeCommitment()
                     + ", " + officer.getAdminPrivileges() + ", " + officer.isDeliveryOfficer());
             counter++;
-            if (counter != allStaff.size()) {
+            if (counter != staffList.size()) {
                 outputToFile.write("\n");
             }
         }
@@ -756,7 +1005,7 @@ public class Staff {
      */
     public static int getAdministratorsCount() {
         int counter = 0;
-        for (Staff staff : allStaff) {
+        for (Staff staff : allStaff.getItems()) {
             if (staff.getAdminPrivileges()) {
                 counter++;
             }
@@ -773,17 +1022,7 @@ public class Staff {
      * @throws ParseException if date is formatted incorrectly.
      */
     public static int getNumberOfEventsForWeek(String name, String date) throws ParseException {
-        if (Validation.isValidDate(date)) {
-            String formattedDate = date.substring(6) + "-" + date.substring(3, 5) + "-" + date.substring(0, 2);
-            LocalDate dateOfWeek = LocalDate.parse(formattedDate);
-            LocalDate monday = dateOfWeek.with(previousOrSame(DayOfWeek.MONDAY));
-            LocalDate sunday = dateOfWeek.with(nextOrSame(DayOfWeek.SUNDAY));
-            String mondayDate = Validation.convertLocalDateToUKFormat(monday);
-            String sundayDate = Validation.convertLocalDateToUKFormat(sunday);
-            return findStaffMember(name).getOfficerNumberOfEvents(mondayDate, sundayDate);
-        } else {
-            throw new ParseException("Invalid Date", 1);
-        }
+        return getNumberOfEventsForWeek(findStaffMember(name), date);
     }
 
     /**
@@ -796,13 +1035,8 @@ public class Staff {
      */
     public static int getNumberOfEventsForWeek(Staff d, String date) throws ParseException {
         if (Validation.isValidDate(date)) {
-            String formattedDate = date.substring(6) + "-" + date.substring(3, 5) + "-" + date.substring(0, 2);
-            LocalDate dateOfWeek = LocalDate.parse(formattedDate);
-            LocalDate monday = dateOfWeek.with(previousOrSame(DayOfWeek.MONDAY));
-            LocalDate sunday = dateOfWeek.with(nextOrSame(DayOfWeek.SUNDAY));
-            String mondayDate = Validation.convertLocalDateToUKFormat(monday);
-            String sundayDate = Validation.convertLocalDateToUKFormat(sunday);
-            return d.getOfficerNumberOfEvents(mondayDate, sundayDate);
+            LocalDate dateOfWeek = WorkloadMatrix.parseUKDate(date);
+            return WorkloadMatrix.getCurrent().getNumberOfEvents(d, dateOfWeek, dateOfWeek);
         } else {
             throw new ParseException("Invalid Date", 1);
         }
@@ -819,31 +1053,7 @@ public class Staff {
      * @throws ParseException if date is formatted incorrectly.
      */
     public double getEventsComparedToAverageForMonth(String name, String date) throws ParseException {
-        double comparedToAverage = 0.0;
-        if (Validation.isValidDate(date)) {
-            String formattedDate = date.substring(6) + "-" + date.substring(3, 5) + "-" + date.substring(0, 2);
-            LocalDate dateOfWeek = LocalDate.parse(formattedDate);
-            LocalDate monday = null;
-            LocalDate sunday = null;
-            for (int i = 0; i < 2; i++) {                                       //Retrieves date of Monday 2 weeks prior
-                monday = dateOfWeek.with(previous(DayOfWeek.MONDAY));
-            }
-            for (int i = 0; i < 2; i++) {                                       //Retrieves date of Sunday 2 weeks after
-                sunday = dateOfWeek.with(next(DayOfWeek.SUNDAY));
-            }
-            if (monday != null && sunday != null) {
-                String mondayDate = Validation.convertLocalDateToUKFormat(monday);
-                String sundayDate = Validation.convertLocalDateToUKFormat(sunday);
-                double average = (averageOfficerNumberOfEvents(mondayDate, sundayDate)) * (getTimeCommitment()/100.0);
-                comparedToAverage = findStaffMember(name).getOfficerNumberOfEvents(mondayDate, sundayDate) - average;
-
-            } else {
-                System.out.println("Date is null.");
-            }
-        } else {
-            throw new ParseException("Invalid Date", 1);
-        }
-        return comparedToAverage;
+        return getEventsComparedToAverageForMonth(findStaffMember(name), date);
     }
 
     /**
@@ -857,31 +1067,16 @@ public class Staff {
      * @throws ParseException if date is formatted incorrectly.
      */
     public double getEventsComparedToAverageForMonth(Staff s, String date) throws ParseException {
-        double comparedToAverage = 0.0;
-        if (Validation.isValidDate(date)) {
-            String formattedDate = date.substring(6) + "-" + date.substring(3, 5) + "-" + date.substring(0, 2);
-            LocalDate dateOfWeek = LocalDate.parse(formattedDate);
-            LocalDate monday = null;
-            LocalDate sunday = null;
-            for (int i = 0; i < 2; i++) {                                       //Retrieves date of Monday 2 weeks prior
-                monday = dateOfWeek.with(previous(DayOfWeek.MONDAY));
-            }
-            for (int i = 0; i < 2; i++) {                                       //Retrieves date of Sunday 2 weeks after
-                sunday = dateOfWeek.with(next(DayOfWeek.SUNDAY));
-            }
-            if (monday != null && sunday != null) {
-                String mondayDate = Validation.convertLocalDateToUKFormat(monday);
-                String sundayDate = Validation.convertLocalDateToUKFormat(sunday);
-                double average = (averageOfficerNumberOfEvents(mondayDate, sundayDate)) * (getTimeCommitment()/100.0);
-                comparedToAverage = s.getOfficerNumberOfEvents(mondayDate, sundayDate) - average;
-
-            } else {
-                System.out.println("Date is null.");
-            }
-        } else {
+        if (!Validation.isValidDate(date)) {
             throw new ParseException("Invalid Date", 1);
         }
-        return comparedToAverage;
+        LocalDate dateOfWeek = WorkloadMatrix.parseUKDate(date);
+        LocalDate monday = dateOfWeek.with(previous(DayOfWeek.MONDAY));
+        LocalDate sunday = dateOfWeek.with(next(DayOfWeek.SUNDAY));
+        WorkloadMatrix workload = WorkloadMatrix.getCurrent();
+        double average = workload.getAverageNumberOfEvents(getAllStaffList(), monday, sunday)
+                * (getTimeCommitment() / 100.0);
+        return workload.getNumberOfEvents(s, monday, sunday) - average;
     }
 
     /**
@@ -892,13 +1087,54 @@ public class Staff {
      * @param date date in the format (dd/mm/yyyy).
      * @throws ParseException if date incorrectly formatted.
      */
-    public static void recommendOfficerForWorkshop(String date, ArrayList<Staff> available) throws ParseException {
+    public static void recommendOfficerForWorkshop(String date, List<Staff> available) throws ParseException {
+        ArrayList<Staff> recommendedOfficers = new ArrayList<>();
+        Staff leastEvents = findRecommendedOfficers(date, available, recommendedOfficers);
+        System.out.println("Recommended Officer | Events that Week | Compared to Average for -2 weeks + 2 weeks");
+        for (Staff recommended : recommendedOfficers) {
+            System.out.printf("%-25s\t %-15s %20s\n", recommended.getName(),
+                    getNumberOfEventsForWeek(recommended, date),
+                    leastEvents.getEventsComparedToAverageForMonth(recommended, date));
+        }
+    }
+
+    /**
+     * Finds the delivery officers to recommend for a workshop, using the same comparison as
+     * recommendOfficerForWorkshop.
+     *
+     * @param date      date in the format (dd/mm/yyyy).
+     * @param available a List of the staff members available on the date.
+     * @return a new ArrayList of the recommended delivery officers, empty if none are available.
+     * @throws ParseException if date incorrectly formatted.
+     */
+    public static ArrayList<Staff> findRecommendedOfficers(String date, List<Staff> available)
+            throws ParseException {
         ArrayList<Staff> recommendedOfficers = new ArrayList<>();
+        findRecommendedOfficers(date, available, recommendedOfficers);
+        return recommendedOfficers;
+    }
+
+    /**
+     * Finds the delivery officers to recommend for a workshop, and the officer whose time commitment the average
+     * printed by recommendOfficerForWorkshop is scaled by.
+     *
+     * @return the officer with the least events found, or null if none are available.
+     */
+    private static Staff findRecommendedOfficers(String date, List<Staff> available,
+                                                 ArrayList<Staff> recommendedOfficers) throws ParseException {
+        long start = System.nanoTime();
+        RecommendationEvent recommendationEvent = new RecommendationEvent();
+        recommendationEvent.begin();
+        int candidatesScored = 0;
+        if (available.isEmpty()) {
+            return null;
+        }
         Staff leastEvents = available.get(0);
         double currentEvents;
         double smallest = getNumberOfEventsForWeek(leastEvents, date);
         for (Staff s : available) {
             if (s.isDeliveryOfficer()) {
+                candidatesScored++;
                 currentEvents = getNumberOfEventsForWeek(s, date);
                 if (smallest > currentEvents) {
                     smallest = currentEvents;
@@ -917,12 +1153,14 @@ public class Staff {
                 }
             }
         }
-        System.out.println("Recommended Officer | Events that Week | Compared to Average for -2 weeks + 2 weeks");
-        for (Staff recommended : recommendedOfficers) {
-            System.out.printf("%-25s\t %-15s %20s\n", recommended.getName(),
-                    getNumberOfEventsForWeek(recommended.getName(), date),
-                    leastEvents.getEventsComparedToAverageForMonth(recommended.getName(), date));
+        recommendationEvent.end();
+        if (recommendationEvent.shouldCommit()) {
+            recommendationEvent.date = date;
+            recommendationEvent.candidatesScored = candidatesScored;
+            recommendationEvent.officersRecommended = recommendedOfficers.size();
+            recommendationEvent.commit();
         }
+        Metrics.recordLatency("staff.findRecommendedOfficers", start);
+        return leastEvents;
     }
 }
-
@@ -0,0 +1,58 @@
+/**
+ * The number of events of a delivery officer for a period, along with the number of events they should have for
+ * their time commitment.
+ */
+public class StaffWorkload {
+
+    private final String name;
+    private final int numberOfEvents;
+    private final long recommendedNumberOfEvents;
+
+    /**
+     * Constructor for StaffWorkload objects.
+     *
+     * @param name                      a String of the name of the delivery officer.
+     * @param numberOfEvents            an int of the number of events for the period.
+     * @param recommendedNumberOfEvents a long of the recommended number of events for the period.
+     */
+    public StaffWorkload(String name, int numberOfEvents, long recommendedNumberOfEvents) {
+        this.name = name;
+        this.numberOfEvents = numberOfEvents;
+        this.recommendedNumberOfEvents = recommendedNumberOfEvents;
+    }
+
+    /**
+     * Getter method for the name of the delivery officer.
+     *
+     * @return a String of the name of the delivery officer.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter method for the number of events for the period.
+     *
+     * @return an int of the number of events.
+     */
+    public int getNumberOfEvents() {
+        return numberOfEvents;
+    }
+
+    /**
+     * Getter method for the recommended number of events for the period.
+     *
+     * @return a long of the recommended number of events.
+     */
+    public long getRecommendedNumberOfEvents() {
+        return recommendedNumberOfEvents;
+    }
+
+    /**
+     * Prints the workload as a row of the staff number of events table.
+     */
+    public void printWorkload() {
+        System.out.printf("%-25s %-20s %-10s", name, numberOfEvents, recommendedNumberOfEvents);
+        System.out.println();
+    }
+}
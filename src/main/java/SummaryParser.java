@@ -0,0 +1,160 @@
+/**
+ * Reads the fields of calendar event summaries in a single pass. Shared calendar summaries are in the
+ * "SU - Type - School - KS - Workshop" format, where any fields missing from the end are read as "?", and personal
+ * calendar summaries are in the "XY: AL" format, where XY are the initials of the staff member. Summaries which do
+ * not match either format are skipped rather than causing an exception.
+ *
+ * A parser keeps the fields of the last summary read, so one parser can be reused for every event of a calendar
+ * without creating any objects apart from the fields themselves. A parser should not be shared between threads.
+ */
+public class SummaryParser {
+
+    private static final String SEPARATOR = " - ";
+    private static final String MISSING = "?";
+    private static final int MAX_INITIALS_LENGTH = 2;
+
+    private String universityCode;
+    private String eventType;
+    private String schoolName;
+    private String keyStage;
+    private String workshop;
+    private int position;
+
+    /**
+     * Reads a shared calendar summary if it belongs to a university. Only the university code is compared for the
+     * events of other universities, no other fields are read.
+     *
+     * @param summary        a String of the event summary, which may be null.
+     * @param universityCode a String of the university code the summary must start with, such as "SU".
+     * @return true if the summary belongs to the university and its fields have been read.
+     */
+    public boolean parseShared(String summary, String universityCode) {
+        if (summary == null || !summary.startsWith(universityCode)) {
+            return false;
+        }
+        int codeEnd = universityCode.length();
+        if (summary.length() != codeEnd && !summary.startsWith(SEPARATOR, codeEnd)) {
+            return false;
+        }
+        this.universityCode = universityCode;
+        position = codeEnd;
+        eventType = nextField(summary);
+        schoolName = nextField(summary);
+        keyStage = nextField(summary);
+        workshop = nextField(summary);
+        return true;
+    }
+
+    private String nextField(String summary) {
+        if (position >= summary.length()) {
+            return MISSING;
+        }
+        int start = position + SEPARATOR.length();
+        int end = summary.indexOf(SEPARATOR, start);
+        if (end < 0) {
+            end = summary.length();
+        }
+        position = end;
+        return summary.substring(start, end);
+    }
+
+    /**
+     * Reads the type of a personal calendar summary in the "XY: AL" format if it belongs to a staff member.
+     *
+     * @param summary  a String of the event summary, which may be null.
+     * @param initials a String of the initials of the staff member, from Staff.getInitials().
+     * @return a String of the type after the colon, such as "AL" or "Unavailable", or null if the summary does not
+     * belong to the staff member.
+     */
+    public static String parseUnavailabilityType(String summary, String initials) {
+        int colon = initials.length();
+        if (summary == null || summary.length() <= colon || summary.charAt(colon) != ':'
+                || !summary.startsWith(initials)) {
+            return null;
+        }
+        int end = summary.indexOf(':', colon + 1);
+        return summary.substring(colon + 1, end < 0 ? summary.length() : end).trim();
+    }
+
+    /**
+     * Reads the initials at the start of a personal calendar summary in the "XY: AL" format, without knowing whose
+     * calendar it came from.
+     *
+     * @param summary a String of the event summary, which may be null.
+     * @return a String of the text before the colon, or null if the summary does not start with initials and a
+     * colon.
+     */
+    public static String parseUnavailabilityInitials(String summary) {
+        if (summary == null) {
+            return null;
+        }
+        int colon = summary.indexOf(':');
+        if (colon <= 0 || colon > MAX_INITIALS_LENGTH) {
+            return null;
+        }
+        return summary.substring(0, colon);
+    }
+
+    /**
+     * Gets the initials of a name, the first letter of each of its first two words.
+     *
+     * @param name a String of a full name.
+     * @return a String of the initials, empty for an empty name.
+     */
+    public static String getInitials(String name) {
+        String trimmedName = name.trim();
+        if (trimmedName.isEmpty()) {
+            return "";
+        }
+        int space = trimmedName.indexOf(' ');
+        if (space < 0) {
+            return trimmedName.substring(0, 1);
+        }
+        return new String(new char[]{trimmedName.charAt(0), trimmedName.charAt(space + 1)});
+    }
+
+    /**
+     * Getter method for the university code of the last summary read.
+     *
+     * @return a String of the university code.
+     */
+    public String getUniversityCode() {
+        return universityCode;
+    }
+
+    /**
+     * Getter method for the event type of the last summary read.
+     *
+     * @return a String of the event type, or "?" if it was missing.
+     */
+    public String getEventType() {
+        return eventType;
+    }
+
+    /**
+     * Getter method for the school name of the last summary read.
+     *
+     * @return a String of the school name, or "?" if it was missing.
+     */
+    public String getSchoolName() {
+        return schoolName;
+    }
+
+    /**
+     * Getter method for the key stage of the last summary read.
+     *
+     * @return a String of the key stage, or "?" if it was missing.
+     */
+    public String getKeyStage() {
+        return keyStage;
+    }
+
+    /**
+     * Getter method for the workshop of the last summary read.
+     *
+     * @return a String of the workshop, or "?" if it was missing.
+     */
+    public String getWorkshop() {
+        return workshop;
+    }
+}
@@ -5,15 +5,21 @@ import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
 import java.util.Scanner;
+import java.util.function.UnaryOperator;
 
 public class TechnocampsEvent {
 
-    private static final ArrayList<TechnocampsEvent> allEvents = new ArrayList<>();
+    private static final VersionedStore<TechnocampsEvent> allEvents = new VersionedStore<>("events", TechnocampsEvent::getUniqueID);
 
     private final String uniqueID;
-    private DateTime dateOfEvent;
+    private final DateTime dateOfEvent;
     private final DateTime startTime;
     private final DateTime endTime;
     private final String universityCode;
@@ -21,7 +27,7 @@ public class TechnocampsEvent {
     private final String schoolName;
     private final String keyStage;
     private final String workshop;
-    private final ArrayList<Staff> listOfStaff;
+    private final BitSet staffIds;
 
 
     /**
@@ -35,7 +41,8 @@ public class TechnocampsEvent {
      * @param schoolName a String containing the name of the school.
      * @param keyStage a String containing the key stage of the class
      * @param workshop a string containing the name of the workshop to be delivered.
-     * @param listOfStaff an Arraylist containing Delivery Officers assigned to the event.
+     * @param listOfStaff an Arraylist containing Delivery Officers assigned to the event, which are kept as a BitSet
+     *                    of their staff ids.
      */
     public TechnocampsEvent(String uniqueID, DateTime dateOfEvent, DateTime startTime, DateTime endTime,
                             String universityCode, String eventType,
@@ -49,10 +56,34 @@ public class TechnocampsEvent {
         this.schoolName = schoolName;
         this.keyStage = keyStage;
         this.workshop = workshop;
-        this.listOfStaff = listOfStaff;
+        this.staffIds = new BitSet();
+        for (Staff staff : listOfStaff) {
+            staffIds.set(staff.getStaffId());
+        }
         this.uniqueID = uniqueID;
     }
 
+    /**
+     * Constructor for a changed copy of an event, with a new date and new delivery officers.
+     *
+     * @param event       the TechnocampsEvent to copy.
+     * @param dateOfEvent the date of the copy.
+     * @param staffIds    a BitSet of the staff ids of the officers assigned to the copy, which is not changed
+     *                    afterwards.
+     */
+    private TechnocampsEvent(TechnocampsEvent event, DateTime dateOfEvent, BitSet staffIds) {
+        this.uniqueID = event.uniqueID;
+        this.dateOfEvent = dateOfEvent;
+        this.startTime = event.startTime;
+        this.endTime = event.endTime;
+        this.universityCode = event.universityCode;
+        this.eventType = event.eventType;
+        this.schoolName = event.schoolName;
+        this.keyStage = event.keyStage;
+        this.workshop = event.workshop;
+        this.staffIds = staffIds;
+    }
+
     /**
      * Prints a string containing the details of the event to the console. It is used when a specific
      * delivery officer is not specified and displays a list of all the delivery officers assigned to the event object.
@@ -69,7 +100,7 @@ public class TechnocampsEvent {
                     + " | " + schoolName + " | " + keyStage + " | " + workshop);
         }
         System.out.println("Delivery Officers Assigned:");
-        for (Staff staff : listOfStaff) {
+        for (Staff staff : getListOfStaff()) {
             System.out.println(staff.getName());
         }
         System.out.println();
@@ -181,13 +212,132 @@ public class TechnocampsEvent {
 
 
     /**
-     * Assigns delivery officer objects to an event. Not Implemented yet.
+     * Gets every workshop, club, Technoteach, AL and Unavailable event on or after a start date, and on or before
+     * an end date if one is given.
+     *
+     * @param startDate A String which should be of format dd/MM/yyyy.
+     * @param endDate   A String which should be of format dd/MM/yyyy, or null for an open end date.
+     * @return an ArrayList of the events in date order of the calendar.
+     * @throws ParseException if dates provided are poorly formatted.
+     */
+    public static ArrayList<TechnocampsEvent> getEventsBetween(String startDate, String endDate)
+            throws ParseException {
+        Date firstSearchDate = Validation.convertStringToDate(startDate);
+        Date secondSearchDate = endDate == null ? null : Validation.convertStringToDate(endDate);
+        ArrayList<TechnocampsEvent> events = new ArrayList<>();
+        for (TechnocampsEvent event : TechnocampsEvent.getAllEvents()) {
+            String eventType = event.getEventType();
+            if (eventType.equals("Workshop") || eventType.equals("Technoclub") || eventType.equals("Technoteach")
+                    || eventType.equals("AL") || eventType.equals("Unavailable")) {
+                Date eventDate = Validation.convertDateTimeToUKFormat(event.getDateOfEvent().toStringRfc3339());
+                if (firstSearchDate.compareTo(eventDate) <= 0
+                        && (secondSearchDate == null || secondSearchDate.compareTo(eventDate) >= 0)) {
+                    events.add(event);
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Gets the date of the event for display.
+     *
+     * @return a String of the date in the format dd/MM/yyyy.
+     */
+    public String getDisplayDate() {
+        return Validation.convertDateTimeToUKFormat(dateOfEvent);
+    }
+
+    /**
+     * Gets the start and end times of the event for display.
+     *
+     * @return a String in the format 00:00 - 00:00, or All Day for all day events.
+     */
+    public String getDisplayTime() {
+        if (startTime.isDateOnly()) {
+            return "All Day";
+        }
+        return startTime.toStringRfc3339().split("T")[1].substring(0, 5) + " - " +
+                endTime.toStringRfc3339().split("T")[1].substring(0, 5);
+    }
+
+    /**
+     * Gets the names of the delivery officers assigned to the event for display.
+     *
+     * @return a String of the names separated by commas.
+     */
+    public String getDisplayStaffNames() {
+        StringBuilder names = new StringBuilder();
+        for (Staff staff : getListOfStaff()) {
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(staff.getName());
+        }
+        return names.toString();
+    }
+
+    /**
+     * Checks if another version of an event has the same details, used to find which events have changed when the
+     * calendar is refreshed.
+     *
+     * @param other another TechnocampsEvent, usually with the same uniqueID.
+     * @return true if the dates, times, details and delivery officers are all the same.
+     */
+    public boolean hasSameDetails(TechnocampsEvent other) {
+        return Objects.equals(dateOfEvent, other.dateOfEvent) && Objects.equals(startTime, other.startTime)
+                && Objects.equals(endTime, other.endTime) && Objects.equals(universityCode, other.universityCode)
+                && Objects.equals(eventType, other.eventType) && Objects.equals(schoolName, other.schoolName)
+                && Objects.equals(keyStage, other.keyStage) && Objects.equals(workshop, other.workshop)
+                && staffIds.equals(other.staffIds);
+    }
+
+    /**
+     * Checks if the school, workshop, type or any delivery officer of the event contains the given text, ignoring
+     * case. It is used to filter events as the user types, so it does not create any Strings.
+     *
+     * @param text a String of the text to search for, in lower case.
+     * @return true if any of the details contain the text.
+     */
+    public boolean matchesFilter(String text) {
+        if (containsIgnoreCase(schoolName, text) || containsIgnoreCase(workshop, text)
+                || containsIgnoreCase(eventType, text)) {
+            return true;
+        }
+        for (int id = staffIds.nextSetBit(0); id >= 0; id = staffIds.nextSetBit(id + 1)) {
+            if (containsIgnoreCase(Staff.getStaffById(id).getName(), text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsIgnoreCase(String value, String text) {
+        if (value == null) {
+            return false;
+        }
+        if (text.isEmpty()) {
+            return true;
+        }
+        char firstCharacter = text.charAt(0);
+        for (int i = 0; i <= value.length() - text.length(); i++) {
+            if (Character.toLowerCase(value.charAt(i)) == firstCharacter
+                    && value.regionMatches(true, i, text, 0, text.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Assigns delivery officer objects to an event. Not Implemented yet. The event itself is not changed, as it may
+     * be read through snapshots of the list of all events; a copy with the officer assigned replaces it in the list.
      *
      * @param name A string containing the name of the delivery officer to be assigned.
      */
     public void assignDeliveryOfficer(String name) {
         boolean officerFound = false;
-        for (Staff deliveryofficer : getListOfStaff()) {
+        for (Staff deliveryofficer : getCurrentVersion().getListOfStaff()) {
             if (deliveryofficer.getName().toUpperCase().equals(name.toUpperCase())) {
                 officerFound = true;
                 break;
@@ -196,30 +346,42 @@ public class TechnocampsEvent {
         if (officerFound) {
             System.out.println("Officer already assigned to event.");
         }else {
-
+            BitSet assignedIds = new BitSet();
             for (Staff staff : Staff.getAllStaffList()) {
                 if (staff.getName().equals(name)) {
-                    getListOfStaff().add(staff);
+                    assignedIds.set(staff.getStaffId());
                     officerFound = true;
                 }
             }
             if (!officerFound) {
                 System.out.println("No member of staff by that name exists.");
+            } else {
+                replace(event -> {
+                    BitSet newStaffIds = (BitSet) event.staffIds.clone();
+                    newStaffIds.or(assignedIds);
+                    return new TechnocampsEvent(event, event.dateOfEvent, newStaffIds);
+                });
             }
         }
     }
 
     /**
-     * Removes a delivery officer from an event. Not Implemented Yet.
+     * Removes a delivery officer from an event. Not Implemented Yet. The event itself is not changed; a copy without
+     * the officer replaces it in the list of all events.
      *
      * @param name a String containing the name of a delivery officer.
      */
     public void removeDeliveryOfficer(String name) {
         boolean officerFound = false;
-        for (Staff deliveryofficer : getListOfStaff()) {
+        for (Staff deliveryofficer : getCurrentVersion().getListOfStaff()) {
             if (deliveryofficer.getName().toUpperCase().equals(name.toUpperCase())) {
                 officerFound = true;
-                getListOfStaff().remove(deliveryofficer);
+                int removedId = deliveryofficer.getStaffId();
+                replace(event -> {
+                    BitSet newStaffIds = (BitSet) event.staffIds.clone();
+                    newStaffIds.clear(removedId);
+                    return new TechnocampsEvent(event, event.dateOfEvent, newStaffIds);
+                });
                 System.out.println(name + "Has been removed from this event.");
                 break;
             }
@@ -230,13 +392,13 @@ public class TechnocampsEvent {
     }
 
     /**
-     * Changes the date of an event and removes all delivery officers assigned to it.
+     * Changes the date of an event and removes all delivery officers assigned to it. The event itself is not
+     * changed; a copy with the new date replaces it in the list of all events.
      *
      * @param newDate a String of the new date in the format dd/mm/yyyy.
      */
     public void setDate(DateTime newDate) {
-        setDateOfEvent(newDate);
-        getListOfStaff().clear();
+        replace(event -> new TechnocampsEvent(event, newDate, new BitSet()));
     }
 
     /**
@@ -249,12 +411,59 @@ public class TechnocampsEvent {
     }
 
     /**
-     * Setter method for the date of an event.
+     * Setter method for the date of an event. The event itself is not changed; a copy with the new date replaces it
+     * in the list of all events.
      *
      * @param dateOfEvent a String of the new date in the format dd/mm/yyyy
      */
     public void setDateOfEvent(DateTime dateOfEvent) {
-        this.dateOfEvent = dateOfEvent;
+        replace(event -> new TechnocampsEvent(event, dateOfEvent, event.staffIds));
+    }
+
+    /**
+     * Gets the version of this event in the list of all events, which is this event unless it has been replaced by
+     * a changed copy.
+     */
+    private TechnocampsEvent getCurrentVersion() {
+        TechnocampsEvent event = allEvents.get(uniqueID);
+        return event == null ? this : event;
+    }
+
+    /**
+     * Replaces the version of this event in the list of all events with a changed copy, as a single new version, and
+     * updates the date index and workload matrix with the change the same way as a calendar refresh. Events in the
+     * list are never changed, as every snapshot of the list and every index built from one shares them.
+     *
+     * @param change makes the changed copy from the event in the list, and is run again if another thread changes
+     *               the list first.
+     */
+    private void replace(UnaryOperator<TechnocampsEvent> change) {
+        if (allEvents.get(uniqueID) == null) {
+            System.out.println("The event is no longer in the calendar.");
+            return;
+        }
+        List<TechnocampsEvent> removedFromIndex = new ArrayList<>(1);
+        List<TechnocampsEvent> addedToIndex = new ArrayList<>(1);
+        VersionedStore.Snapshot<TechnocampsEvent> previous = allEvents.getSnapshot();
+        VersionedStore.Snapshot<TechnocampsEvent> next = allEvents.update(events -> {
+            removedFromIndex.clear();                        //The update is run again if another thread got first
+            addedToIndex.clear();
+            ListIterator<TechnocampsEvent> eventIterator = events.listIterator();
+            while (eventIterator.hasNext()) {
+                TechnocampsEvent event = eventIterator.next();
+                if (event.uniqueID.equals(uniqueID)) {
+                    TechnocampsEvent changedEvent = change.apply(event);
+                    removedFromIndex.add(event);
+                    addedToIndex.add(changedEvent);
+                    eventIterator.set(changedEvent);
+                    break;
+                }
+            }
+        });
+        if (next.getVersion() == previous.getVersion() + 1) {
+            EventDateIndex.applyChanges(previous.getVersion(), next.getVersion(), removedFromIndex, addedToIndex);
+            WorkloadMatrix.applyChanges(previous.getVersion(), next.getVersion(), removedFromIndex, addedToIndex);
+        }
     }
 
     /**
@@ -332,23 +541,91 @@ public class TechnocampsEvent {
     /**
      * Getter method for the list of Delivery Officers assigned to an event object.
      *
-     * @return An ArrayList of Delivery officers.
+     * @return a new ArrayList of Delivery officers, in the order of their staff ids.
      */
     public ArrayList<Staff> getListOfStaff() {
+        ArrayList<Staff> listOfStaff = new ArrayList<>(staffIds.cardinality());
+        for (int id = staffIds.nextSetBit(0); id >= 0; id = staffIds.nextSetBit(id + 1)) {
+            listOfStaff.add(Staff.getStaffById(id));
+        }
         return listOfStaff;
     }
 
-    public static ArrayList<TechnocampsEvent> getAllEvents() {
+    /**
+     * Checks if a staff member is assigned to the event.
+     *
+     * @param staff the staff member.
+     * @return true if the staff member is assigned.
+     */
+    public boolean isAssigned(Staff staff) {
+        return staffIds.get(staff.getStaffId());
+    }
+
+    /**
+     * Checks if any staff are assigned to the event.
+     *
+     * @return true if at least one staff member is assigned.
+     */
+    public boolean hasStaff() {
+        return !staffIds.isEmpty();
+    }
+
+    /**
+     * Adds the staff ids of the staff assigned to the event to a BitSet, so the staff of many events can be
+     * combined a word at a time.
+     *
+     * @param ids the BitSet to add the staff ids to.
+     */
+    public void addStaffIdsTo(BitSet ids) {
+        ids.or(staffIds);
+    }
+
+    /**
+     * Getter method for all events. The list is a snapshot which cannot be changed and is not affected by events
+     * being added, removed or changed later, so it can be read from any thread without locking.
+     *
+     * @return an unmodifiable List of all events.
+     */
+    public static List<TechnocampsEvent> getAllEvents() {
+        return allEvents.getItems();
+    }
+
+    /**
+     * Getter method for the store of all events, used to change the events and to find their version.
+     *
+     * @return the VersionedStore of all events.
+     */
+    public static VersionedStore<TechnocampsEvent> getEventStore() {
         return allEvents;
     }
 
+    /**
+     * Finds an event by its unique ID without searching the list of all events.
+     *
+     * @param uniqueID a String of the ID given to the event by the Google Calendar API.
+     * @return the TechnocampsEvent, or null if there is no event with the ID.
+     */
+    public static TechnocampsEvent getEventByID(String uniqueID) {
+        return allEvents.get(uniqueID);
+    }
+
+    /**
+     * Adds events to the list of all events as a single new version. An event with the same unique ID as an event
+     * already loaded replaces it, so loading the same calendar twice does not count its events twice.
+     *
+     * @param events a Collection of the events to add.
+     */
+    public static void addEvents(Collection<TechnocampsEvent> events) {
+        allEvents.addAll(events);
+    }
+
     /**
      * Allows searching for events by month and year.
      *
      * @return An ArrayList containing startDate and endDate for the selected month (startDate, endDate).
      */
     public static ArrayList<String> searchByMonth() {
-        Scanner scanner = new Scanner(System.in);
+        Scanner scanner = Validation.getConsoleInput();
         LocalDate currentDate = LocalDate.now();
         int y = currentDate.getYear();
         int monthChosen = 0;
@@ -452,7 +729,7 @@ public class TechnocampsEvent {
                 ", schoolName='" + schoolName + '\'' +
                 ", keyStage='" + keyStage + '\'' +
                 ", workshop='" + workshop + '\'' +
-                ", listOfStaff=" + listOfStaff +
+                ", listOfStaff=" + getListOfStaff() +
                 '}';
     }
 
@@ -0,0 +1,25 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for loading the Annual Leave and Unavailability of one staff member from their personal
+ * calendar.
+ */
+@Name("technocamps.UnavailabilityScan")
+@Label("Unavailability Scan")
+@Category({"Technocamps", "Ingestion"})
+@Description("Annual Leave and Unavailability loaded from a staff member's calendar")
+public class UnavailabilityScanEvent extends jdk.jfr.Event {
+
+    @Label("Staff Member")
+    String staffMember;
+
+    @Label("Calendar Events")
+    int calendarEventCount;
+
+    @Label("Entries Found")
+    @Description("Number of AL and Unavailable entries added")
+    int entriesFound;
+}
@@ -9,6 +9,17 @@ import java.util.Scanner;
 
 public class Validation {
 
+    private static final Scanner consoleInput = new Scanner(System.in);
+
+    /**
+     * Getter method for the Scanner reading the console. Every prompt shares it, as separate Scanners on System.in
+     * can each buffer input meant for another.
+     *
+     * @return the Scanner reading System.in.
+     */
+    public static Scanner getConsoleInput() {
+        return consoleInput;
+    }
 
     public static String convertLocalDateToUKFormat(LocalDate date) {
         return date.toString().substring(8) + "/"  + date.toString().substring(5, 7) + "/" +
@@ -130,7 +141,7 @@ public class Validation {
      * @return boolean, true if confirmed, false if not.
      */
     public static boolean confirmChoice(String dataToCheck) {
-        Scanner scanner = new Scanner(System.in);
+        Scanner scanner = getConsoleInput();
         System.out.println("Are you sure you wish to keep these changes: " + dataToCheck + " (Y/N)");
         return scanner.nextLine().trim().toUpperCase().equals("Y");
     }
@@ -141,7 +152,7 @@ public class Validation {
      * @return delivery officer who has logged in successfully or if not, returns null.
      */
     public static Staff logIn(){
-        Scanner scanner = new Scanner(System.in);
+        Scanner scanner = getConsoleInput();
         Staff.printAllStaff();
         System.out.println("X)\tQuit");
         System.out.println("Please select your name:");
@@ -0,0 +1,250 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A list which is replaced rather than changed, used to store all events and all staff. Readers get a snapshot of
+ * the list which never changes, without any locking. Writers copy the list, change the copy and publish it as the
+ * next version in one atomic step, so readers never see a half finished change. A store can be given a key, such as
+ * the unique ID of an event, in which case it holds at most one item for each key, items added with a key already in
+ * the store replace the item with that key, and items can be found by their key without searching the list.
+ *
+ * @param <T> the type of item stored.
+ */
+public class VersionedStore<T> {
+
+    private final String name;
+    private final Function<? super T, ?> key;
+    private final AtomicReference<Snapshot<T>> current =
+            new AtomicReference<>(new Snapshot<>(0, Collections.<T>emptyList(), Collections.emptyMap()));
+    private final ThreadLocal<Snapshot<T>> pinned = new ThreadLocal<>();
+
+    /**
+     * Constructor for VersionedStore objects.
+     *
+     * @param name a String of the name of the store, used for its metrics.
+     */
+    public VersionedStore(String name) {
+        this(name, null);
+    }
+
+    /**
+     * Constructor for VersionedStore objects which hold at most one item for each key.
+     *
+     * @param name a String of the name of the store, used for its metrics.
+     * @param key  gets the key of an item, or null for a store without keys.
+     */
+    public VersionedStore(String name, Function<? super T, ?> key) {
+        this.name = name;
+        this.key = key;
+    }
+
+    /**
+     * Getter method for the current version of the store, or the version pinned by readConsistently.
+     *
+     * @return the current Snapshot, which never changes.
+     */
+    public Snapshot<T> getSnapshot() {
+        Snapshot<T> snapshot = pinned.get();
+        return snapshot == null ? current.get() : snapshot;
+    }
+
+    /**
+     * Getter method for the items of the current version of the store, or the version pinned by
+     * readConsistently.
+     *
+     * @return an unmodifiable List of the items, which is not affected by later changes to the store.
+     */
+    public List<T> getItems() {
+        return getSnapshot().getItems();
+    }
+
+    /**
+     * Finds the item with a key in the current version of the store, or the version pinned by readConsistently.
+     *
+     * @param itemKey the key of the item.
+     * @return the item, or null if there is no item with the key or the store has no key.
+     */
+    public T get(Object itemKey) {
+        return getSnapshot().get(itemKey);
+    }
+
+    /**
+     * Getter method for the number of the current version, which goes up by one with every change.
+     *
+     * @return a long of the version number.
+     */
+    public long getVersion() {
+        return getSnapshot().getVersion();
+    }
+
+    /**
+     * Runs a report against a single version of the store. Every read of the store made by the report on this
+     * thread sees the version which was current when the report began, even if the store is changed while the
+     * report runs.
+     *
+     * @param report the report to run.
+     * @param <R>    the type of the result of the report.
+     * @return the result of the report.
+     * @throws Exception if the report throws an exception.
+     */
+    public <R> R readConsistently(Callable<R> report) throws Exception {
+        if (pinned.get() != null) {
+            return report.call();
+        }
+        pinned.set(current.get());
+        try {
+            return report.call();
+        } finally {
+            pinned.remove();
+        }
+    }
+
+    /**
+     * Changes the store and publishes the result as a new version. If another thread publishes a version first the
+     * change is applied again to that version, so the change should only alter the list it is given.
+     *
+     * @param change changes a copy of the current items.
+     * @return the Snapshot published.
+     */
+    public Snapshot<T> update(Consumer<List<T>> change) {
+        long start = System.nanoTime();
+        while (true) {
+            Snapshot<T> previous = current.get();
+            List<T> items = new ArrayList<>(previous.getItems());
+            change.accept(items);
+            Snapshot<T> next = new Snapshot<>(previous.getVersion() + 1, Collections.unmodifiableList(items),
+                    indexByKey(items));
+            if (current.compareAndSet(previous, next)) {
+                Metrics.recordLatency("store." + name + ".update", start);
+                return next;
+            }
+            Metrics.increment("store." + name + ".retries");
+        }
+    }
+
+    private Map<Object, T> indexByKey(List<T> items) {
+        if (key == null) {
+            return Collections.emptyMap();
+        }
+        Map<Object, T> itemsByKey = new HashMap<>(items.size() * 4 / 3 + 1);
+        for (T item : items) {
+            itemsByKey.put(key.apply(item), item);
+        }
+        return itemsByKey;
+    }
+
+    /**
+     * Adds an item to the store. In a store with a key it replaces the item with the same key, if there is one.
+     *
+     * @param item the item to add.
+     */
+    public void add(T item) {
+        addAll(Collections.singletonList(item));
+    }
+
+    /**
+     * Adds several items to the store in a single version. In a store with a key each item replaces the item with
+     * the same key, keeping its place in the list, and only the last of several new items with the same key is kept,
+     * so adding the same items twice leaves the store as it was.
+     *
+     * @param newItems a Collection of the items to add.
+     */
+    public void addAll(Collection<? extends T> newItems) {
+        if (newItems.isEmpty()) {
+            return;
+        }
+        if (key == null) {
+            update(items -> items.addAll(newItems));
+            return;
+        }
+        update(items -> {
+            Map<Object, Integer> positions = new HashMap<>(items.size() * 4 / 3 + 1);
+            for (int i = 0; i < items.size(); i++) {
+                positions.put(key.apply(items.get(i)), i);
+            }
+            int replaced = 0;
+            for (T item : newItems) {
+                Integer position = positions.putIfAbsent(key.apply(item), items.size());
+                if (position == null) {
+                    items.add(item);
+                } else {
+                    items.set(position, item);
+                    replaced++;
+                }
+            }
+            if (replaced > 0) {
+                Metrics.add("store." + name + ".replaced", replaced);
+            }
+        });
+    }
+
+    /**
+     * Removes an item from the store.
+     *
+     * @param item the item to remove.
+     */
+    public void remove(T item) {
+        update(items -> items.remove(item));
+    }
+
+    /**
+     * Removes every item from the store.
+     */
+    public void clear() {
+        update(List::clear);
+    }
+
+    /**
+     * A version of the store. Neither the version number nor the items of a snapshot ever change.
+     *
+     * @param <T> the type of item stored.
+     */
+    public static final class Snapshot<T> {
+
+        private final long version;
+        private final List<T> items;
+        private final Map<Object, T> itemsByKey;
+
+        Snapshot(long version, List<T> items, Map<Object, T> itemsByKey) {
+            this.version = version;
+            this.items = items;
+            this.itemsByKey = itemsByKey;
+        }
+
+        /**
+         * Getter method for the version number of the snapshot.
+         *
+         * @return a long of the version number.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Getter method for the items of the snapshot.
+         *
+         * @return an unmodifiable List of the items.
+         */
+        public List<T> getItems() {
+            return items;
+        }
+
+        /**
+         * Finds the item of the snapshot with a key.
+         *
+         * @param itemKey the key of the item.
+         * @return the item, or null if there is no item with the key or the store has no key.
+         */
+        public T get(Object itemKey) {
+            return itemsByKey.get(itemKey);
+        }
+    }
+}
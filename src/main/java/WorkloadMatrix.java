@@ -0,0 +1,338 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The workload of every delivery officer in every week of the calendar, from Monday to Sunday, so the number of
+ * events of an officer over any whole weeks is found by adding up a few numbers instead of going through every
+ * event. Workshops and Technoteach count as one event and Technoclubs as half an event, the same as
+ * Staff.getOfficerNumberOfEvents, and are kept as half events so the sums are exact. The row of each officer is kept
+ * by their staff id, so officers with the same name are kept apart and an officer keeps their row when renamed.
+ *
+ * A matrix never changes once it is built; getCurrent() gives the matrix of the current events and staff, built the
+ * first time it is needed after they change. A calendar refresh, or an officer being assigned to or removed from an
+ * event, updates it with applyChanges() instead.
+ */
+public class WorkloadMatrix {
+
+    private static final AtomicReference<WorkloadMatrix> current = new AtomicReference<>();
+    private static final DateTimeFormatter UK_DATE =
+            DateTimeFormatter.ofPattern("d/M/uuuu").withResolverStyle(ResolverStyle.STRICT);
+    private static final String HEAT = " .:-=+*#%@";
+
+    private final long eventsVersion;
+    private final long staffVersion;
+    private final LocalDate firstMonday;
+    private final int numberOfWeeks;
+    private final Map<Integer, int[]> halfEventsByOfficer;
+
+    private WorkloadMatrix(long eventsVersion, long staffVersion, LocalDate firstMonday, int numberOfWeeks,
+                           Map<Integer, int[]> halfEventsByOfficer) {
+        this.eventsVersion = eventsVersion;
+        this.staffVersion = staffVersion;
+        this.firstMonday = firstMonday;
+        this.numberOfWeeks = numberOfWeeks;
+        this.halfEventsByOfficer = halfEventsByOfficer;
+    }
+
+    private static WorkloadMatrix build(Collection<TechnocampsEvent> events, long eventsVersion, long staffVersion) {
+        long start = System.nanoTime();
+        LocalDate firstMonday = null;
+        LocalDate lastMonday = null;
+        for (TechnocampsEvent event : events) {
+            if (getHalfEvents(event) > 0) {
+                LocalDate monday = getMonday(event);
+                firstMonday = firstMonday == null || monday.isBefore(firstMonday) ? monday : firstMonday;
+                lastMonday = lastMonday == null || monday.isAfter(lastMonday) ? monday : lastMonday;
+            }
+        }
+        if (firstMonday == null) {
+            firstMonday = getMonday(LocalDate.parse(Main.getStartingDate().toStringRfc3339().substring(0, 10)));
+            lastMonday = firstMonday;
+        }
+        int numberOfWeeks = (int) ChronoUnit.WEEKS.between(firstMonday, lastMonday) + 1;
+        WorkloadMatrix matrix = new WorkloadMatrix(eventsVersion, staffVersion, firstMonday, numberOfWeeks,
+                new HashMap<>());
+        for (TechnocampsEvent event : events) {
+            matrix.add(event, event.getListOfStaff(), 1, null);
+        }
+        Metrics.recordLatency("workload.build", start);
+        return matrix;
+    }
+
+    /**
+     * Gets the matrix of the current events and staff, building it if either has changed since it was last built.
+     *
+     * @return the WorkloadMatrix of the current events.
+     */
+    public static WorkloadMatrix getCurrent() {
+        VersionedStore.Snapshot<TechnocampsEvent> events = TechnocampsEvent.getEventStore().getSnapshot();
+        long staffVersion = Staff.getStaffStore().getSnapshot().getVersion();
+        WorkloadMatrix matrix = current.get();
+        if (matrix != null && matrix.eventsVersion == events.getVersion() && matrix.staffVersion == staffVersion) {
+            return matrix;
+        }
+        WorkloadMatrix newMatrix = build(events.getItems(), events.getVersion(), staffVersion);
+        while (matrix == null || matrix.isOlderThan(newMatrix)) {
+            if (current.compareAndSet(matrix, newMatrix)) {
+                break;
+            }
+            matrix = current.get();
+        }
+        return newMatrix;
+    }
+
+    /**
+     * Checks whether a matrix was built from older events or staff than another, so a slow build of old versions
+     * never replaces a newer matrix.
+     */
+    private boolean isOlderThan(WorkloadMatrix other) {
+        return eventsVersion < other.eventsVersion
+                || (eventsVersion == other.eventsVersion && staffVersion < other.staffVersion);
+    }
+
+    /**
+     * Updates the current matrix with the changes which made one version of the list of all events into the next,
+     * copying only the rows of the officers of the changed events. If the current matrix is not of the previous
+     * version, or an event is outside the weeks of the matrix, it is left to be built again by getCurrent().
+     *
+     * @param previousVersion a long of the version the changes were made to.
+     * @param newVersion      a long of the version the changes made.
+     * @param removedEvents   the events removed, including the old versions of changed events.
+     * @param addedEvents     the events added, including the new versions of changed events.
+     */
+    public static void applyChanges(long previousVersion, long newVersion, Collection<TechnocampsEvent> removedEvents,
+                                    Collection<TechnocampsEvent> addedEvents) {
+        long start = System.nanoTime();
+        WorkloadMatrix matrix = current.get();
+        if (matrix == null || matrix.eventsVersion != previousVersion) {
+            return;
+        }
+        WorkloadMatrix newMatrix = new WorkloadMatrix(newVersion, matrix.staffVersion, matrix.firstMonday,
+                matrix.numberOfWeeks, new HashMap<>(matrix.halfEventsByOfficer));
+        Map<Integer, int[]> copiedRows = new HashMap<>();
+        for (TechnocampsEvent event : removedEvents) {
+            if (!newMatrix.add(event, event.getListOfStaff(), -1, copiedRows)) {
+                return;
+            }
+        }
+        for (TechnocampsEvent event : addedEvents) {
+            if (!newMatrix.add(event, event.getListOfStaff(), 1, copiedRows)) {
+                return;
+            }
+        }
+        current.compareAndSet(matrix, newMatrix);
+        Metrics.recordLatency("workload.applyChanges", start);
+    }
+
+    /**
+     * Adds the workload of an event to the rows of its officers, or takes it away.
+     *
+     * @param copiedRows the rows already copied from the previous matrix, or null if the rows are all new.
+     * @return false if the event is outside the weeks of the matrix.
+     */
+    private boolean add(TechnocampsEvent event, List<Staff> officers, int sign, Map<Integer, int[]> copiedRows) {
+        int halfEvents = getHalfEvents(event);
+        if (halfEvents == 0 || officers.isEmpty()) {
+            return true;
+        }
+        int week = getWeek(getMonday(event));
+        if (week < 0 || week >= numberOfWeeks) {
+            return false;
+        }
+        for (Staff officer : officers) {
+            Integer key = officer.getStaffId();
+            int[] row = halfEventsByOfficer.get(key);
+            if (row == null) {
+                row = new int[numberOfWeeks];
+                halfEventsByOfficer.put(key, row);
+                if (copiedRows != null) {
+                    copiedRows.put(key, row);
+                }
+            } else if (copiedRows != null && copiedRows.get(key) != row) {
+                row = row.clone();
+                halfEventsByOfficer.put(key, row);
+                copiedRows.put(key, row);
+            }
+            row[week] += sign * halfEvents;
+        }
+        return true;
+    }
+
+    private static int getHalfEvents(TechnocampsEvent event) {
+        String eventType = event.getEventType();
+        if (eventType.equals("Workshop") || eventType.equals("Technoteach")) {
+            return 2;
+        } else if (eventType.equals("Technoclub")) {
+            return 1;
+        }
+        return 0;
+    }
+
+    private static LocalDate getMonday(TechnocampsEvent event) {
+        return getMonday(LocalDate.parse(event.getDateOfEvent().toStringRfc3339().substring(0, 10)));
+    }
+
+    private static LocalDate getMonday(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private int getWeek(LocalDate monday) {
+        return (int) ChronoUnit.WEEKS.between(firstMonday, monday);
+    }
+
+    /**
+     * Reads a date in the dd/MM/yyyy format, without the cost of a SimpleDateFormat for every date.
+     *
+     * @param date a String of the date, already checked with Validation.isValidDate.
+     * @return the LocalDate.
+     * @throws java.time.format.DateTimeParseException if the date is not in the dd/MM/yyyy format.
+     */
+    public static LocalDate parseUKDate(String date) {
+        return LocalDate.parse(date, UK_DATE);
+    }
+
+    /**
+     * Gets the number of events of an officer in the weeks from the week of one date to the week of another,
+     * rounded to the nearest whole number.
+     *
+     * @param officer  the officer.
+     * @param firstDay the first date, whose whole week is included.
+     * @param lastDay  the last date, whose whole week is included.
+     * @return an int of the number of events.
+     */
+    public int getNumberOfEvents(Staff officer, LocalDate firstDay, LocalDate lastDay) {
+        return (int) Math.round(getHalfEvents(officer, firstDay, lastDay) / 2.0);
+    }
+
+    private int getHalfEvents(Staff officer, LocalDate firstDay, LocalDate lastDay) {
+        int[] row = halfEventsByOfficer.get(officer.getStaffId());
+        if (row == null) {
+            return 0;
+        }
+        int firstWeek = Math.max(0, getWeek(getMonday(firstDay)));
+        int lastWeek = Math.min(numberOfWeeks - 1, getWeek(getMonday(lastDay)));
+        int halfEvents = 0;
+        for (int week = firstWeek; week <= lastWeek; week++) {
+            halfEvents += row[week];
+        }
+        return halfEvents;
+    }
+
+    /**
+     * Gets the average number of events of the delivery officers with a 100% time commitment, in the weeks from the
+     * week of one date to the week of another, the same as Staff.averageOfficerNumberOfEvents.
+     *
+     * @param staffList the staff members to average over.
+     * @param firstDay  the first date, whose whole week is included.
+     * @param lastDay   the last date, whose whole week is included.
+     * @return a double of the average, NaN if there are no full time delivery officers.
+     */
+    public double getAverageNumberOfEvents(List<Staff> staffList, LocalDate firstDay, LocalDate lastDay) {
+        double totalNumberOfEvents = 0;
+        double counter = 0;
+        for (Staff staff : staffList) {
+            if (staff.isDeliveryOfficer() && staff.getTimeCommitment() == 100) {
+                totalNumberOfEvents += getNumberOfEvents(staff, firstDay, lastDay);
+                counter++;
+            }
+        }
+        return totalNumberOfEvents / counter;
+    }
+
+    /**
+     * Gets the Monday of every week from the week of one date to the week of another.
+     *
+     * @param firstDay the first date.
+     * @param lastDay  the last date.
+     * @return a List of the Mondays.
+     */
+    public static List<LocalDate> getMondays(LocalDate firstDay, LocalDate lastDay) {
+        List<LocalDate> mondays = new ArrayList<>();
+        for (LocalDate monday = getMonday(firstDay); !monday.isAfter(lastDay); monday = monday.plusWeeks(1)) {
+            mondays.add(monday);
+        }
+        return mondays;
+    }
+
+    /**
+     * Gets the workload of an officer in each week, as a number of events.
+     *
+     * @param officer the officer.
+     * @param mondays the Mondays of weeks in a row, from getMondays.
+     * @return a double array of the number of events in each week.
+     */
+    public double[] getWeeklyEvents(Staff officer, List<LocalDate> mondays) {
+        double[] weeklyEvents = new double[mondays.size()];
+        int[] row = halfEventsByOfficer.get(officer.getStaffId());
+        if (row == null || mondays.isEmpty()) {
+            return weeklyEvents;
+        }
+        int firstWeek = getWeek(mondays.get(0));
+        for (int i = 0; i < mondays.size(); i++) {
+            int week = firstWeek + i;
+            weeklyEvents[i] = week < 0 || week >= numberOfWeeks ? 0 : row[week] / 2.0;
+        }
+        return weeklyEvents;
+    }
+
+    /**
+     * Draws the workload of each officer in each week as a heatmap of characters, darker for busier weeks, with the
+     * ISO week numbers along the top. A blank is a week with no events and @ a week with the most events of anyone.
+     *
+     * @param officers the officers to draw, one line each.
+     * @param firstDay the first date, whose whole week is included.
+     * @param lastDay  the last date, whose whole week is included.
+     * @return a String of the heatmap, one line for each officer after two lines of week numbers.
+     */
+    public String toHeatmap(List<Staff> officers, LocalDate firstDay, LocalDate lastDay) {
+        List<LocalDate> mondays = getMondays(firstDay, lastDay);
+        double[][] weeklyEvents = new double[officers.size()][];
+        double busiest = 0;
+        for (int i = 0; i < officers.size(); i++) {
+            weeklyEvents[i] = getWeeklyEvents(officers.get(i), mondays);
+            for (double events : weeklyEvents[i]) {
+                busiest = Math.max(busiest, events);
+            }
+        }
+        StringBuilder tens = new StringBuilder(String.format("%-25s ", "ISO week"));
+        StringBuilder units = new StringBuilder(String.format("%-25s ", ""));
+        for (LocalDate monday : mondays) {
+            int week = monday.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+            tens.append(week / 10);
+            units.append(week % 10);
+        }
+        StringBuilder heatmap = new StringBuilder().append(tens).append('\n').append(units).append('\n');
+        for (int i = 0; i < officers.size(); i++) {
+            heatmap.append(String.format(Locale.UK, "%-25.25s ", officers.get(i).getName()));
+            for (double events : weeklyEvents[i]) {
+                int shade = events <= 0 ? 0
+                        : 1 + (int) Math.min(HEAT.length() - 2, (events / busiest) * (HEAT.length() - 2));
+                heatmap.append(HEAT.charAt(shade));
+            }
+            heatmap.append('\n');
+        }
+        return heatmap.append(String.format("Busiest week: %s events, scale \"%s\"", busiest, HEAT.substring(1)))
+                .toString();
+    }
+
+    /**
+     * Getter method for the version of the list of all events the matrix was built from.
+     *
+     * @return a long of the version number.
+     */
+    public long getVersion() {
+        return eventsVersion;
+    }
+}
@@ -0,0 +1,126 @@
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks CalendarQuickstart.readUnavailabilityInBatches against a CalendarStub serving the personal calendars of
+ * 120 generated staff members, 5 events per page, so every calendar takes several batches.
+ * <ul>
+ * <li>With one part failing once with 503, every calendar is read in full, the part is tried again in the next
+ * batch, and the events read are the same as reading the calendars directly.</li>
+ * <li>With one part failing once and another failing every time, the load fails naming only the calendar which
+ * kept failing, after it has been tried -Dcalendar.maxAttempts times, and every other calendar is read in
+ * full.</li>
+ * </ul>
+ * Run with "gradlew batchRequestCheck", or as part of "gradlew check".
+ */
+public class BatchRequestCheck {
+
+    private static final int NUMBER_OF_CALENDARS = 120;
+    private static final int EVENTS_PER_PAGE = 5;
+    private static final int MAX_BATCH_SIZE = 50;
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("calendar.requestsPerSecond") == null) {
+            System.setProperty("calendar.requestsPerSecond", "1000");   //The stub has no quota
+        }
+        CalendarStub stub = new CalendarStub(EVENTS_PER_PAGE);
+        try {
+            System.setProperty("calendar.rootUrl", stub.getRootUrl());
+            Calendar service = CalendarQuickstart.buildService(new NetHttpTransport(), null);
+
+            CalendarGenerator generator = new CalendarGenerator(9, NUMBER_OF_CALENDARS, 100);
+            ArrayList<Staff> staff = generator.generateStaff();
+            Staff.addStaffMembers(staff);
+            List<Event> allEvents = new ArrayList<>();
+            for (Staff staffMember : staff) {
+                List<Event> events = generator.generateUnavailability(staffMember);
+                stub.putCalendar(staffMember.getEmail(), events);
+                allEvents.addAll(events);
+            }
+            check(staff.size() == NUMBER_OF_CALENDARS, "generated " + staff.size() + " calendars");
+            String retried = staff.get(3).getEmail();
+            String broken = staff.get(7).getEmail();
+            check(allEvents.size() > NUMBER_OF_CALENDARS * EVENTS_PER_PAGE, "too few events for several pages");
+
+            stub.failCalendar(retried, 1);
+            AtomicInteger loaded = new AtomicInteger();
+            List<TechnocampsEvent> read = CalendarQuickstart.readUnavailabilityInBatches(service, staff,
+                    Main.getStartingDate(), loaded::set);
+            check(getIds(read).equals(getIds(CalendarQuickstart.parseUnavailabilityFromCalendars(allEvents))),
+                    "the events read in batches differ from the events of the calendars");
+            check(loaded.get() == NUMBER_OF_CALENDARS, "progress reached " + loaded.get());
+            for (Staff staffMember : staff) {
+                check(stub.getLastPagesSent(staffMember.getEmail()) == 1,
+                        staffMember.getEmail() + " was not read to its last page once");
+            }
+            int pages = (stub.getRequests(retried) - 1);
+            check(pages == (countEvents(allEvents, staff.get(3)) + EVENTS_PER_PAGE - 1) / EVENTS_PER_PAGE,
+                    retried + " was requested " + stub.getRequests(retried) + " times");
+            checkBatchSizes(stub);
+
+            stub.failCalendar(retried, 1);
+            stub.failCalendar(broken, Integer.MAX_VALUE);
+            int brokenRequests = stub.getRequests(broken);
+            try {
+                CalendarQuickstart.readUnavailabilityInBatches(service, staff, Main.getStartingDate(), loaded::set);
+                check(false, "reading " + broken + " did not fail");
+            } catch (IOException e) {
+                check(e.getMessage().contains(staff.get(7).getName() + " (503"), e.getMessage());
+                check(e.getMessage().indexOf(" (") == e.getMessage().lastIndexOf(" ("),
+                        "more than one calendar failed: " + e.getMessage());
+            }
+            int attempts = CalendarRequestExecutor.getShared().getMaxAttempts();
+            check(stub.getRequests(broken) - brokenRequests == attempts,
+                    broken + " was requested " + (stub.getRequests(broken) - brokenRequests) + " times, not "
+                            + attempts);
+            for (Staff staffMember : staff) {
+                if (!staffMember.getEmail().equals(broken)) {
+                    check(stub.getLastPagesSent(staffMember.getEmail()) == 2,
+                            staffMember.getEmail() + " was not read to its last page again");
+                }
+            }
+            checkBatchSizes(stub);
+            System.out.println("BatchRequestCheck passed: " + stub.getBatchSizes().size() + " batches, "
+                    + allEvents.size() + " events");
+        } finally {
+            stub.stop();
+        }
+    }
+
+    private static void checkBatchSizes(CalendarStub stub) {
+        for (int size : stub.getBatchSizes()) {
+            check(size > 0 && size <= MAX_BATCH_SIZE, "a batch held " + size + " requests");
+        }
+    }
+
+    private static int countEvents(List<Event> events, Staff staffMember) {
+        int count = 0;
+        for (Event event : events) {
+            if (event.getCreator().getEmail().equals(staffMember.getEmail())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static TreeSet<String> getIds(List<TechnocampsEvent> events) {
+        TreeSet<String> ids = new TreeSet<>();
+        for (TechnocampsEvent event : events) {
+            ids.add(event.getUniqueID());
+        }
+        return ids;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.Events;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A stand-in for the Google Calendar API on the loopback interface, which serves generated calendars a few events
+ * per page, to single page requests and to multipart batch requests. Each page is sent with an ETag made from the
+ * version of its calendar, and answered with 304 Not Modified when it is requested again with that ETag. A
+ * calendar can be made to fail its next requests with 503 Service Unavailable.
+ *
+ * The checks point the client at the stub with -Dcalendar.rootUrl, set to getRootUrl().
+ */
+public class CalendarStub {
+
+    private static final Pattern PART_REQUEST = Pattern.compile("GET (\\S+) HTTP/1.1");
+    private static final String BOUNDARY = "stub_boundary";
+
+    private final HttpServer server;
+    private final int pageSize;
+    private final Map<String, List<Event>> calendars = new ConcurrentHashMap<>();
+    private final Map<String, Integer> versions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> failuresLeft = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> lastPagesSent = new ConcurrentHashMap<>();
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger pagesSent = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    /**
+     * Constructor for CalendarStub objects, which starts the server on a free port.
+     *
+     * @param pageSize an int of the most events sent in each page.
+     * @throws IOException if the server cannot be started.
+     */
+    public CalendarStub(int pageSize) throws IOException {
+        this.pageSize = pageSize;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/calendar/v3/calendars/", this::sendPage);
+        server.createContext("/batch/calendar/v3", this::sendBatch);
+        server.start();
+    }
+
+    /**
+     * Getter method for the URL to set -Dcalendar.rootUrl to.
+     *
+     * @return a String of the root URL of the stub.
+     */
+    public String getRootUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Adds a calendar, or replaces its events, which changes the ETags of all of its pages.
+     *
+     * @param calendarId a String of the email address of the calendar.
+     * @param events     a List of the events of the calendar.
+     */
+    public void putCalendar(String calendarId, List<Event> events) {
+        calendars.put(calendarId, new ArrayList<>(events));
+        versions.merge(calendarId, 1, Integer::sum);
+    }
+
+    /**
+     * Makes the next requests for a calendar fail with 503 Service Unavailable.
+     *
+     * @param calendarId a String of the email address of the calendar.
+     * @param times      an int of the number of requests which fail, Integer.MAX_VALUE for every request.
+     */
+    public void failCalendar(String calendarId, int times) {
+        failuresLeft.put(calendarId, times);
+    }
+
+    /**
+     * Getter method for the number of requests for a calendar, including those which failed.
+     *
+     * @param calendarId a String of the email address of the calendar.
+     * @return an int of the number of requests.
+     */
+    public int getRequests(String calendarId) {
+        AtomicInteger count = requests.get(calendarId);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Getter method for the number of times the last page of a calendar has been sent.
+     *
+     * @param calendarId a String of the email address of the calendar.
+     * @return an int of the number of times.
+     */
+    public int getLastPagesSent(String calendarId) {
+        AtomicInteger count = lastPagesSent.get(calendarId);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Getter method for the number of pages sent in full.
+     *
+     * @return an int of the number of pages.
+     */
+    public int getPagesSent() {
+        return pagesSent.get();
+    }
+
+    /**
+     * Getter method for the number of requests answered with 304 Not Modified.
+     *
+     * @return an int of the number of requests.
+     */
+    public int getNotModified() {
+        return notModified.get();
+    }
+
+    /**
+     * Getter method for the number of requests in each batch request received.
+     *
+     * @return a List of the sizes, in the order the batches were received.
+     */
+    public List<Integer> getBatchSizes() {
+        synchronized (batchSizes) {
+            return new ArrayList<>(batchSizes);
+        }
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    private void sendPage(HttpExchange exchange) throws IOException {
+        readBody(exchange);
+        Response response = answer(exchange.getRequestURI(), exchange.getRequestHeaders().getFirst("If-None-Match"));
+        if (response.eTag != null) {
+            exchange.getResponseHeaders().set("ETag", response.eTag);
+        }
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        if (response.statusCode == 304) {
+            exchange.sendResponseHeaders(304, -1);
+        } else {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(response.statusCode, body.length);
+            exchange.getResponseBody().write(body);
+        }
+        exchange.close();
+    }
+
+    private void sendBatch(HttpExchange exchange) throws IOException {
+        String body = new String(readBody(exchange), StandardCharsets.UTF_8);
+        StringBuilder parts = new StringBuilder();
+        int numberOfParts = 0;
+        Matcher request = PART_REQUEST.matcher(body);
+        while (request.find()) {
+            numberOfParts++;
+            Response response = answer(URI.create(request.group(1)), null);
+            parts.append("--").append(BOUNDARY).append("\r\nContent-Type: application/http\r\n\r\n")
+                    .append("HTTP/1.1 ").append(response.statusCode).append(' ').append(response.reasonPhrase)
+                    .append("\r\nContent-Type: application/json; charset=UTF-8\r\n\r\n")
+                    .append(response.body).append("\r\n");
+        }
+        batchSizes.add(numberOfParts);
+        parts.append("--").append(BOUNDARY).append("--\r\n");
+        byte[] response = parts.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "multipart/mixed; boundary=" + BOUNDARY);
+        exchange.sendResponseHeaders(200, response.length);
+        exchange.getResponseBody().write(response);
+        exchange.close();
+    }
+
+    /**
+     * Answers a request for a page of events, such as /calendar/v3/calendars/{calendarId}/events?pageToken=10.
+     */
+    private Response answer(URI uri, String ifNoneMatch) throws IOException {
+        String calendarId = URLDecoder.decode(uri.getRawPath().split("/")[4], "UTF-8");
+        requests.computeIfAbsent(calendarId, id -> new AtomicInteger()).incrementAndGet();
+        Integer failures = failuresLeft.get(calendarId);
+        if (failures != null && failures > 0) {
+            failuresLeft.put(calendarId, failures == Integer.MAX_VALUE ? failures : failures - 1);
+            return new Response(503, "Service Unavailable", null,
+                    "{\"error\":{\"code\":503,\"message\":\"Backend Error\"}}");
+        }
+        List<Event> events = calendars.get(calendarId);
+        if (events == null) {
+            return new Response(404, "Not Found", null, "{\"error\":{\"code\":404,\"message\":\"Not Found\"}}");
+        }
+        int from = 0;
+        if (uri.getRawQuery() != null) {
+            for (String parameter : uri.getRawQuery().split("&")) {
+                if (parameter.startsWith("pageToken=")) {
+                    from = Integer.parseInt(parameter.substring("pageToken=".length()));
+                }
+            }
+        }
+        String eTag = "\"" + versions.get(calendarId) + "-" + from + "\"";
+        if (eTag.equals(ifNoneMatch)) {
+            notModified.incrementAndGet();
+            return new Response(304, "Not Modified", eTag, "");
+        }
+        int to = Math.min(events.size(), from + pageSize);
+        Events page = new Events().setItems(events.subList(from, to));
+        if (to < events.size()) {
+            page.setNextPageToken(String.valueOf(to));
+        } else {
+            lastPagesSent.computeIfAbsent(calendarId, id -> new AtomicInteger()).incrementAndGet();
+        }
+        pagesSent.incrementAndGet();
+        return new Response(200, "OK", eTag, JacksonFactory.getDefaultInstance().toString(page));
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return body.toByteArray();
+    }
+
+    private static class Response {
+
+        private final int statusCode;
+        private final String reasonPhrase;
+        private final String eTag;
+        private final String body;
+
+        Response(int statusCode, String reasonPhrase, String eTag, String body) {
+            this.statusCode = statusCode;
+            this.reasonPhrase = reasonPhrase;
+            this.eTag = eTag;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Checks QueryServer on the loopback interface, started on a free port against a generated roster and calendar.
+ * <ul>
+ * <li>Every endpoint answers GET with JSON, which is parsed strictly, so NaN or a missing comma fails the check, and
+ * holds the same events, staff and workloads as the reports it answers from.</li>
+ * <li>Requests with a date which is missing or not a date, or a name which is not a staff member, are answered
+ * with 400, paths under an endpoint with 404, and POST with 405, each with a JSON error.</li>
+ * <li>With no full time officers the comparison with the average, which is NaN, is written as null.</li>
+ * </ul>
+ * Run with "gradlew queryServerCheck", or as part of "gradlew check".
+ */
+public class QueryServerCheck {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public static void main(String[] args) throws Exception {
+        new CalendarGenerator(9, 20, 600).populateStores();
+        QueryServer server = new QueryServer(new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+        try {
+            String root = "http://127.0.0.1:" + server.getPort();
+            TechnocampsEvent workshop = null;
+            for (TechnocampsEvent event : TechnocampsEvent.getAllEvents()) {
+                if (event.getEventType().equals("Workshop") && event.hasStaff()) {
+                    workshop = event;
+                    break;
+                }
+            }
+            check(workshop != null, "no workshop was generated");
+            String date = Validation.convertDateTimeToUKFormat(workshop.getDateOfEvent());
+            LocalDate day = WorkloadMatrix.parseUKDate(date);
+            String from = Validation.convertLocalDateToUKFormat(day.minusWeeks(2));
+            String to = Validation.convertLocalDateToUKFormat(day.plusWeeks(2));
+
+            List<Object> events = getArray(root + "/events?from=" + from + "&to=" + to);
+            check(getValues(events, "id").equals(getIds(EventDateIndex.getCurrent()
+                    .getEventsBetween(day.minusWeeks(2), day.plusWeeks(2)))), "/events differ from the date index");
+            List<Object> suEvents = getArray(root + "/events?from=" + from + "&to=" + to + "&university=SU");
+            check(getValues(suEvents, "id").equals(getIds(EventDateIndex.getCurrent()
+                    .getEventsBetween("SU", day.minusWeeks(2), day.plusWeeks(2)))), "/events of SU differ");
+            check(!suEvents.isEmpty(), "no events of SU around " + date);
+            getArray(root + "/events");
+
+            Staff officer = workshop.getListOfStaff().get(0);
+            List<Object> staffEvents = getArray(root + "/staff/events?name="
+                    + URLEncoder.encode(officer.getName(), "UTF-8") + "&from=" + from + "&to=" + to);
+            check(getValues(staffEvents, "id").equals(getIds(Staff.getStaffEventList(officer.getName(), from, to))),
+                    "/staff/events differ from the staff event list");
+            check(getValues(staffEvents, "id").contains(workshop.getUniqueID()), "the workshop is not listed");
+
+            List<Object> workloads = getArray(root + "/workload?from=" + from + "&to=" + to);
+            List<Object> expectedWorkloads = new ArrayList<>();
+            for (StaffWorkload workload : Staff.getStaffWorkloads(from, to)) {
+                expectedWorkloads.add(workload.getName() + " " + workload.getNumberOfEvents());
+            }
+            List<Object> actualWorkloads = new ArrayList<>();
+            for (Object workload : workloads) {
+                Map<?, ?> fields = (Map<?, ?>) workload;
+                actualWorkloads.add(fields.get("name") + " " + fields.get("numberOfEvents"));
+            }
+            check(actualWorkloads.equals(expectedWorkloads), "/workload differs from the staff workloads");
+
+            List<Object> available = getArray(root + "/available?date=" + date);
+            check(getValues(available, "name").equals(getNames(Staff.findAvailableOfficers(date))),
+                    "/available differs from the available officers");
+            check(!getValues(available, "name").contains(officer.getName()), officer.getName() + " is available");
+            List<Object> recommended = getArray(root + "/recommend?date=" + date);
+            check(getValues(recommended, "name").equals(getNames(
+                    Staff.findRecommendedOfficers(date, Staff.findAvailableOfficers(date)))),
+                    "/recommend differs from the recommended officers");
+            check(parse(get(root + "/metrics", 200)) instanceof Map, "/metrics is not an object");
+
+            checkError(root + "/events?from=31/02/2020", 400);
+            checkError(root + "/events?from=yesterday", 400);
+            checkError(root + "/available", 400);
+            checkError(root + "/recommend?date=2020-01-06", 400);
+            checkError(root + "/staff/events?name=Nobody%20At%20All", 400);
+            checkError(root + "/events/all", 404);
+            for (String endpoint : new String[]{"/events", "/staff/events", "/workload", "/available", "/recommend",
+                    "/metrics"}) {
+                checkError(root + endpoint, "POST", 405);
+            }
+
+            List<Staff> partTime = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                partTime.add(new Staff("Part Time" + i, "part.time" + i + "@swansea.ac.uk", 50, false, true));
+            }
+            Staff.getStaffStore().clear();
+            Staff.addStaffMembers(partTime);
+            List<Object> noFullTime = getArray(root + "/available?date=" + date);
+            check(noFullTime.size() == partTime.size(), noFullTime.size() + " officers available");
+            for (Object staff : noFullTime) {
+                check(((Map<?, ?>) staff).containsKey("comparedToAverage")
+                                && ((Map<?, ?>) staff).get("comparedToAverage") == null,
+                        "the comparison with no full time officers is not null: " + staff);
+            }
+            System.out.println("QueryServerCheck passed: " + events.size() + " events, " + available.size()
+                    + " available officers");
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static List<Object> getArray(String url) throws IOException {
+        Object json = parse(get(url, 200));
+        check(json instanceof List, url + " did not answer with an array");
+        @SuppressWarnings("unchecked")
+        List<Object> array = (List<Object>) json;
+        return array;
+    }
+
+    private static void checkError(String url, int expectedStatus) throws IOException {
+        checkError(url, "GET", expectedStatus);
+    }
+
+    private static void checkError(String url, String method, int expectedStatus) throws IOException {
+        Object json = parse(request(url, method, expectedStatus));
+        check(json instanceof Map && ((Map<?, ?>) json).get("error") instanceof String,
+                method + " " + url + " did not answer with a JSON error");
+    }
+
+    private static String get(String url, int expectedStatus) throws IOException {
+        return request(url, "GET", expectedStatus);
+    }
+
+    private static String request(String url, String method, int expectedStatus) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        if (method.equals("POST")) {
+            connection.setDoOutput(true);
+            connection.getOutputStream().close();
+        }
+        int status = connection.getResponseCode();
+        check(status == expectedStatus, method + " " + url + " answered " + status + ", expected " + expectedStatus);
+        check(Objects.equals(connection.getContentType(), "application/json; charset=utf-8"),
+                url + " answered " + connection.getContentType());
+        try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Parses a JSON document into Maps, Lists, Strings, Numbers, Booleans and nulls, failing on anything which is
+     * not strict JSON.
+     */
+    private static Object parse(String json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            Object value = readValue(parser, parser.nextToken());
+            check(parser.nextToken() == null, "more than one value in " + json);
+            return value;
+        }
+    }
+
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        check(token != null, "the JSON ended early");
+        switch (token) {
+            case START_OBJECT:
+                Map<String, Object> object = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    object.put(field, readValue(parser, parser.nextToken()));
+                }
+                return object;
+            case START_ARRAY:
+                List<Object> array = new ArrayList<>();
+                for (JsonToken next = parser.nextToken(); next != JsonToken.END_ARRAY; next = parser.nextToken()) {
+                    array.add(readValue(parser, next));
+                }
+                return array;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return parser.getBooleanValue();
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new AssertionError("unexpected " + token);
+        }
+    }
+
+    private static List<Object> getValues(List<Object> array, String field) {
+        List<Object> values = new ArrayList<>();
+        for (Object item : array) {
+            values.add(((Map<?, ?>) item).get(field));
+        }
+        return values;
+    }
+
+    private static List<Object> getIds(List<TechnocampsEvent> events) {
+        List<Object> ids = new ArrayList<>();
+        for (TechnocampsEvent event : events) {
+            ids.add(event.getUniqueID());
+        }
+        return ids;
+    }
+
+    private static List<Object> getNames(List<Staff> staffList) {
+        List<Object> names = new ArrayList<>();
+        for (Staff staff : staffList) {
+            names.add(staff.getName());
+        }
+        return names;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
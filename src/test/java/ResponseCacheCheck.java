@@ -0,0 +1,158 @@
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks CalendarResponseCache through CalendarQuickstart.readEvents against a CalendarStub serving shared
+ * calendars of 1800 generated events, 500 events per page, with the cache in a new directory limited to
+ * -Dcalendar.cacheMegabytes=1.
+ * <ul>
+ * <li>A page left unfinished in the directory as a .tmp file is deleted when the cache is first used.</li>
+ * <li>Reading a calendar again sends each page with If-None-Match, and the 304 Not Modified pages are read from
+ * disk as the same events.</li>
+ * <li>When a calendar changes its pages are sent in full and replace the pages on disk.</li>
+ * <li>Reading a second calendar takes the pages past the limit, and the pages used least recently are deleted
+ * until they fit.</li>
+ * </ul>
+ * Run with "gradlew responseCacheCheck", or as part of "gradlew check".
+ */
+public class ResponseCacheCheck {
+
+    private static final int EVENTS_PER_PAGE = 500;
+    private static final int PAGES = 4;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("calendar-cache");
+        Path unfinished = Files.write(directory.resolve("page1.tmp"), new byte[]{'"', 'x'});
+        System.setProperty("calendar.cacheDir", directory.toString());
+        System.setProperty("calendar.cacheMegabytes", "1");
+        if (System.getProperty("calendar.requestsPerSecond") == null) {
+            System.setProperty("calendar.requestsPerSecond", "1000");   //The stub has no quota
+        }
+        CalendarStub stub = new CalendarStub(EVENTS_PER_PAGE);
+        try {
+            System.setProperty("calendar.rootUrl", stub.getRootUrl());
+            Calendar service = CalendarQuickstart.buildService(new NetHttpTransport(), null);
+            CalendarResponseCache cache = CalendarResponseCache.getShared();
+
+            CalendarGenerator generator = new CalendarGenerator(9, 20, 1800);
+            ArrayList<Staff> staff = generator.generateStaff();
+            Staff.addStaffMembers(staff);
+            List<Event> events = generator.generateSharedCalendar(staff);
+            check(events.size() > (PAGES - 1) * EVENTS_PER_PAGE && events.size() <= PAGES * EVENTS_PER_PAGE,
+                    "generated " + events.size() + " events");
+            stub.putCalendar("first@stub", events);
+
+            List<TechnocampsEvent> firstRead = read(service, "first@stub");
+            check(Files.notExists(unfinished), "the unfinished page was not deleted");
+            check(stub.getPagesSent() == PAGES && stub.getNotModified() == 0,
+                    stub.getPagesSent() + " pages sent the first time");
+            check(countFiles(directory, ".page") == PAGES && countFiles(directory, ".tmp") == 0,
+                    "the pages were not all stored");
+            checkTotalBytes(directory, cache);
+
+            List<TechnocampsEvent> secondRead = read(service, "first@stub");
+            check(stub.getPagesSent() == PAGES && stub.getNotModified() == PAGES,
+                    stub.getNotModified() + " pages were not modified the second time");
+            check(getDetails(secondRead).equals(getDetails(firstRead)), "the pages read from disk differ");
+
+            events.set(0, events.get(0).clone().setSummary("SU - Changed - School - KS3 - Workshop"));
+            stub.putCalendar("first@stub", events);
+            List<TechnocampsEvent> changedRead = read(service, "first@stub");
+            check(stub.getPagesSent() == 2 * PAGES && stub.getNotModified() == PAGES,
+                    stub.getPagesSent() + " pages sent after the calendar changed");
+            check(changedRead.get(0).getEventType().equals("Changed"), "the changed page was not read");
+            check(countFiles(directory, ".page") == PAGES, "the changed pages were added, not replaced");
+            List<TechnocampsEvent> changedAgain = read(service, "first@stub");
+            check(stub.getNotModified() == 2 * PAGES, "the changed pages were not kept");
+            check(getDetails(changedAgain).equals(getDetails(changedRead)), "the changed pages read from disk differ");
+            checkTotalBytes(directory, cache);
+
+            long firstBytes = cache.getTotalBytes();
+            long maxBytes = 1024 * 1024;
+            check(firstBytes < maxBytes && 2 * firstBytes > maxBytes,
+                    firstBytes + " bytes of pages cannot show eviction past 1 MB");
+            stub.putCalendar("second@stub", new CalendarGenerator(10, 20, 1800).generateSharedCalendar(staff));
+            read(service, "second@stub");
+            check(cache.getTotalBytes() <= maxBytes, cache.getTotalBytes() + " bytes kept past the limit");
+            check(countFiles(directory, ".page") < 2 * PAGES, "no pages were evicted");
+            checkTotalBytes(directory, cache);
+            int sent = stub.getPagesSent();
+            int notModified = stub.getNotModified();
+            read(service, "second@stub");
+            check(stub.getNotModified() - notModified == PAGES && stub.getPagesSent() == sent,
+                    "the pages used most recently were evicted");
+            read(service, "first@stub");
+            check(stub.getPagesSent() > sent, "the pages used least recently were not evicted");
+            checkTotalBytes(directory, cache);
+            System.out.println("ResponseCacheCheck passed: " + stub.getPagesSent() + " pages sent, "
+                    + stub.getNotModified() + " read from disk");
+        } finally {
+            stub.stop();
+            deleteDirectory(directory);
+        }
+    }
+
+    private static List<TechnocampsEvent> read(Calendar service, String calendarId) throws IOException {
+        List<TechnocampsEvent> events = new ArrayList<>();
+        CalendarQuickstart.readEvents(service, calendarId, Main.getStartingDate(), "shared",
+                CalendarQuickstart.sharedEventReader(events, Collections.singletonList("SU")));
+        return events;
+    }
+
+    private static List<String> getDetails(List<TechnocampsEvent> events) {
+        List<String> details = new ArrayList<>();
+        for (TechnocampsEvent event : events) {
+            details.add(event.getUniqueID() + " " + event.getStartTime() + " " + event.getEventType() + " "
+                    + event.getSchoolName() + " " + event.getDisplayStaffNames());
+        }
+        return details;
+    }
+
+    /**
+     * Checks the size the cache keeps count of is the size of the pages in the directory.
+     */
+    private static void checkTotalBytes(Path directory, CalendarResponseCache cache) throws IOException {
+        long bytes = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.page")) {
+            for (Path file : files) {
+                bytes += Files.size(file);
+            }
+        }
+        check(bytes == cache.getTotalBytes(), "the cache counts " + cache.getTotalBytes() + " bytes, the pages are "
+                + bytes);
+    }
+
+    private static int countFiles(Path directory, String suffix) throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + suffix)) {
+            for (Path ignored : files) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks that reports read while the calendar is refreshed and staff are changed see a single version of the
+ * events and staff. A CalendarRefresher switches the list of all events between two different calendars of the same
+ * roster, each refresh adding, changing and removing events, and an officer is taken off or put back on delivery
+ * after each refresh, while reader threads run reports inside readConsistently on both stores.
+ * <ul>
+ * <li>EventDateIndex.getCurrent() is of the pinned version of the events, and the events between two dates are the
+ * same objects as the events of the pinned list on those dates.</li>
+ * <li>WorkloadMatrix.getCurrent() is of the pinned version, and the number of events of every officer over whole
+ * weeks is the same as counting the pinned events.</li>
+ * <li>Staff.getStaffWorkloads, answered from the shared QueryCache, gives the same workloads and recommended
+ * numbers as counting the pinned events for the pinned staff.</li>
+ * <li>Staff.findAvailableOfficers gives the pinned delivery officers who have no pinned event on the date.</li>
+ * </ul>
+ * Run with "gradlew storeConsistencyCheck", or as part of "gradlew check".
+ */
+public class StoreConsistencyCheck {
+
+    private static final int REFRESHES = 30;
+    private static final int READERS = 4;
+
+    public static void main(String[] args) throws Exception {
+        CalendarGenerator[] calendars = {new CalendarGenerator(21, 20, 600), new CalendarGenerator(22, 20, 560)};
+        calendars[0].populateStores();
+        List<Staff> roster = Staff.getAllStaffList();
+        AtomicInteger calendarNumber = new AtomicInteger();
+        CalendarRefresher refresher = new CalendarRefresher(() -> {
+            CalendarGenerator calendar = calendars[calendarNumber.incrementAndGet() % calendars.length];
+            ArrayList<TechnocampsEvent> events = CalendarQuickstart.parseEventsFromCalendar(
+                    calendar.generateSharedCalendar(roster), Main.getCalendarSources().keySet());
+            for (Staff staffMember : Staff.getAllStaffList()) {
+                events.addAll(CalendarQuickstart.parseUnavailabilityFromCalendar(
+                        calendar.generateUnavailability(staffMember), staffMember));
+            }
+            return events;
+        });
+        LocalDate firstDate = LocalDate.parse(Main.getStartingDate().toStringRfc3339().substring(0, 10));
+
+        AtomicBoolean refreshing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger reads = new AtomicInteger();
+        Set<Long> versionsRead = ConcurrentHashMap.newKeySet();
+        ExecutorService readers = Executors.newFixedThreadPool(READERS);
+        for (int reader = 0; reader < READERS; reader++) {
+            Random random = new Random(reader);
+            readers.execute(() -> {
+                try {
+                    while (refreshing.get() && failure.get() == null) {
+                        LocalDate from = firstDate.plusDays(random.nextInt(365));
+                        LocalDate to = from.plusDays(random.nextInt(60));
+                        versionsRead.add(Staff.getStaffStore().readConsistently(() -> TechnocampsEvent
+                                .getEventStore().readConsistently(() -> checkReports(from, to))));
+                        reads.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+
+        try {
+            for (int i = 0; i < REFRESHES && failure.get() == null; i++) {
+                int changes = refresher.refresh();
+                check(changes > 0, "refresh " + i + " changed nothing");
+                Staff officer = Staff.getStaffById(roster.get(i % roster.size()).getStaffId());
+                officer.setDeliveryOfficer(!officer.isDeliveryOfficer());
+            }
+        } finally {
+            refreshing.set(false);
+            readers.shutdown();
+            readers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("a report did not match its snapshot", failure.get());
+        }
+        check(versionsRead.size() > 1, "the readers only saw " + versionsRead.size() + " version of the events");
+        System.out.println("StoreConsistencyCheck passed: " + REFRESHES + " refreshes, " + reads.get()
+                + " consistent reads across " + versionsRead.size() + " versions of the events");
+    }
+
+    /**
+     * Runs each report on the pinned snapshots and compares it with the same report worked out from the snapshots.
+     *
+     * @return the version of the events checked.
+     */
+    private static long checkReports(LocalDate from, LocalDate to) throws Exception {
+        VersionedStore.Snapshot<TechnocampsEvent> events = TechnocampsEvent.getEventStore().getSnapshot();
+        List<Staff> staffList = Staff.getAllStaffList();
+        check(TechnocampsEvent.getAllEvents() == events.getItems(), "getAllEvents is not the pinned snapshot");
+
+        EventDateIndex index = EventDateIndex.getCurrent();
+        check(index.getVersion() == events.getVersion(),
+                "the date index is of version " + index.getVersion() + ", not " + events.getVersion());
+        List<TechnocampsEvent> expectedEvents = new ArrayList<>();
+        for (TechnocampsEvent event : events.getItems()) {
+            String eventType = event.getEventType();
+            if ((eventType.equals("Workshop") || eventType.equals("Technoclub") || eventType.equals("Technoteach")
+                    || eventType.equals("AL") || eventType.equals("Unavailable")) && isBetween(event, from, to)) {
+                expectedEvents.add(event);
+            }
+        }
+        check(isSameEvents(index.getEventsBetween(from, to), expectedEvents),
+                "the date index differs from the events of version " + events.getVersion() + " from " + from);
+
+        WorkloadMatrix matrix = WorkloadMatrix.getCurrent();
+        check(matrix.getVersion() == events.getVersion(),
+                "the workload matrix is of version " + matrix.getVersion() + ", not " + events.getVersion());
+        LocalDate monday = from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate sunday = to.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+        for (Staff staff : staffList) {
+            int expected = (int) Math.round(countHalfEvents(events.getItems(), staff, monday, sunday) / 2.0);
+            check(matrix.getNumberOfEvents(staff, from, to) == expected,
+                    "the workload matrix differs for " + staff.getName() + " from " + from);
+        }
+
+        List<String> expectedWorkloads = new ArrayList<>();
+        double totalNumberOfEvents = 0;
+        double counter = 0;
+        for (Staff staff : staffList) {
+            if (staff.isDeliveryOfficer() && staff.getTimeCommitment() == 100) {
+                totalNumberOfEvents += Math.round(countHalfEvents(events.getItems(), staff, from, to) / 2.0);
+                counter++;
+            }
+        }
+        double average = totalNumberOfEvents / counter;
+        for (Staff staff : staffList) {
+            if (staff.isDeliveryOfficer()) {
+                expectedWorkloads.add(staff.getName() + " "
+                        + Math.round(countHalfEvents(events.getItems(), staff, from, to) / 2.0) + " "
+                        + Math.round(average * (staff.getTimeCommitment() / 100.0)));
+            }
+        }
+        List<String> workloads = new ArrayList<>();
+        for (StaffWorkload workload : Staff.getStaffWorkloads(Validation.convertLocalDateToUKFormat(from),
+                Validation.convertLocalDateToUKFormat(to))) {
+            workloads.add(workload.getName() + " " + workload.getNumberOfEvents() + " "
+                    + workload.getRecommendedNumberOfEvents());
+        }
+        check(workloads.equals(expectedWorkloads),
+                "the staff workloads differ from version " + events.getVersion() + " from " + from);
+
+        List<Staff> expectedAvailable = new ArrayList<>();
+        for (Staff staff : staffList) {
+            boolean assigned = false;
+            for (TechnocampsEvent event : events.getItems()) {
+                assigned |= event.isAssigned(staff) && getDate(event).equals(from);
+            }
+            if (staff.isDeliveryOfficer() && !assigned) {
+                expectedAvailable.add(staff);
+            }
+        }
+        check(Staff.findAvailableOfficers(Validation.convertLocalDateToUKFormat(from)).equals(expectedAvailable),
+                "the available officers differ from version " + events.getVersion() + " on " + from);
+        return events.getVersion();
+    }
+
+    private static int countHalfEvents(Collection<TechnocampsEvent> events, Staff staff, LocalDate from,
+                                       LocalDate to) {
+        int halfEvents = 0;
+        for (TechnocampsEvent event : events) {
+            if (event.isAssigned(staff) && isBetween(event, from, to)) {
+                String eventType = event.getEventType();
+                if (eventType.equals("Workshop") || eventType.equals("Technoteach")) {
+                    halfEvents += 2;
+                } else if (eventType.equals("Technoclub")) {
+                    halfEvents++;
+                }
+            }
+        }
+        return halfEvents;
+    }
+
+    private static boolean isBetween(TechnocampsEvent event, LocalDate from, LocalDate to) {
+        LocalDate date = getDate(event);
+        return !date.isBefore(from) && !date.isAfter(to);
+    }
+
+    private static LocalDate getDate(TechnocampsEvent event) {
+        return LocalDate.parse(event.getDateOfEvent().toStringRfc3339().substring(0, 10));
+    }
+
+    private static boolean isSameEvents(List<TechnocampsEvent> events, List<TechnocampsEvent> expectedEvents) {
+        Set<TechnocampsEvent> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+        expected.addAll(expectedEvents);
+        Set<TechnocampsEvent> actual = Collections.newSetFromMap(new IdentityHashMap<>());
+        actual.addAll(events);
+        return events.size() == expectedEvents.size() && actual.equals(expected);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
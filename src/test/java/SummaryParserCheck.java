@@ -0,0 +1,199 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Checks SummaryParser against the split-based parsing it replaced, on the summaries of generated calendars and on
+ * random summaries pieced together from separators, colons, codes and whitespace.
+ * <ul>
+ * <li>Where the old parsing read a summary, SummaryParser reads the same fields, except for shared summaries ending
+ * in " -", where the old parsing ran its "?" padding into the last field.</li>
+ * <li>Where the old parsing threw an exception, SummaryParser skips the summary or reads it with empty or "?"
+ * fields.</li>
+ * <li>Personal summaries with " - " after the colon are read without the "?" padding the old parsing added.</li>
+ * </ul>
+ * The edge cases are pinned below with the fields they are read as. Run with "gradlew summaryParserCheck", or as
+ * part of "gradlew check".
+ */
+public class SummaryParserCheck {
+
+    private static final int RANDOM_SUMMARIES = 1000000;
+    private static final String[] PIECES = {"SU", "SU ", "AB", "A", " - ", " -", "- ", ":", ": ", "::", "AL",
+            "Unavailable", "?", "", " ", "\t", "\u00e9"};
+    private static final String INITIALS = "AB";
+    private static final String THROWS = "throws";
+
+    public static void main(String[] args) {
+        checkEdgeCases();
+        CalendarGenerator generator = new CalendarGenerator(9, 20, 0);
+        int compared = 0;
+        for (String summary : generator.generateSummaries(RANDOM_SUMMARIES)) {
+            compare(summary);
+            compared++;
+        }
+        Random random = new Random(Long.getLong("check.seed", 39L));
+        for (int i = 0; i < RANDOM_SUMMARIES; i++) {
+            StringBuilder summary = new StringBuilder();
+            int numberOfPieces = random.nextInt(9);
+            for (int piece = 0; piece < numberOfPieces; piece++) {
+                summary.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            compare(summary.toString());
+            compared++;
+        }
+        System.out.println("SummaryParserCheck passed: " + compared + " summaries");
+    }
+
+    private static void checkEdgeCases() {
+        checkShared("SU - Workshop - School - KS3 - Coding", "Workshop|School|KS3|Coding");
+        checkShared("SU - Workshop - School - KS3 - Coding - Extra", "Workshop|School|KS3|Coding");
+        checkShared("SU - A", "A|?|?|?");
+        checkShared("SU -  - B", "|B|?|?");
+        checkShared("SU - A - ", "A||?|?");          //The old split dropped the empty last field, then padded
+        checkOldShared("SU - A - ", "A||?|?");
+        checkShared("SU", "?|?|?|?");
+        checkOldShared("SU", THROWS);
+        checkShared("SU - ", "|?|?|?");
+        checkOldShared("SU - ", THROWS);
+        checkShared("SU - A -", "A -|?|?|?");
+        checkOldShared("SU - A -", "A|- ?|?|?");     //The padding ran into the trailing " -"
+        checkShared("SUB - A", null);
+        checkShared("AU - A - B", null);
+        checkShared(" - ", null);
+        checkOldShared(" - ", THROWS);
+        checkShared("", null);
+        checkShared(null, null);
+
+        checkUnavailability("AB: AL", "AL");
+        checkUnavailability("AB:Unavailable", "Unavailable");
+        checkUnavailability("AB: AL: Dentist", "AL");
+        checkUnavailability("AB: Training - Coding", "Training - Coding");
+        checkOldUnavailability("AB: Training - Coding", "Training - Coding - ? - ? - ?");
+        checkUnavailability("AB:", "");
+        checkOldUnavailability("AB:", THROWS);
+        checkUnavailability("AB", null);
+        checkOldUnavailability("AB", THROWS);
+        checkUnavailability("ABC: AL", null);
+        checkUnavailability("AC: AL", null);
+        checkUnavailability("::", null);
+        checkUnavailability(null, null);
+        check(Objects.equals(SummaryParser.parseUnavailabilityInitials("XY: AL"), "XY"), "initials of XY: AL");
+        check(SummaryParser.parseUnavailabilityInitials("XYZ: AL") == null, "initials of XYZ: AL");
+        check(SummaryParser.parseUnavailabilityInitials(": AL") == null, "initials of : AL");
+    }
+
+    /**
+     * Compares SummaryParser with the old parsing for one summary.
+     */
+    private static void compare(String summary) {
+        if (summary == null) {
+            check(parseShared(null) == null && SummaryParser.parseUnavailabilityType(null, INITIALS) == null,
+                    "read a null summary");
+            return;
+        }
+        String shared = parseShared(summary);
+        String oldShared = splitShared(summary);
+        if (THROWS.equals(oldShared)) {
+            check(shared == null || summary.equals("SU") || summary.startsWith("SU - "),
+                    "read a summary the old parsing could not: " + summary);
+        } else if (oldShared == null || !summary.endsWith(" -")) {
+            check(Objects.equals(shared, oldShared), describe(summary, shared, oldShared));
+        }
+
+        String type = SummaryParser.parseUnavailabilityType(summary, INITIALS);
+        String oldType = splitUnavailabilityType(summary, false);
+        if (THROWS.equals(oldType)) {
+            check(type == null || type.isEmpty(), "read a type the old parsing could not: " + summary);
+        } else {
+            check(Objects.equals(type, oldType), describe(summary, type, oldType));
+            String paddedType = splitUnavailabilityType(summary, true);
+            check(type == null || paddedType.startsWith(type), describe(summary, type, paddedType));
+        }
+    }
+
+    private static String parseShared(String summary) {
+        SummaryParser parser = new SummaryParser();
+        if (!parser.parseShared(summary, "SU")) {
+            return null;
+        }
+        check(parser.getUniversityCode().equals("SU"), "university code of " + summary);
+        return parser.getEventType() + "|" + parser.getSchoolName() + "|" + parser.getKeyStage() + "|"
+                + parser.getWorkshop();
+    }
+
+    /**
+     * The fields of a shared calendar summary as they were read before SummaryParser, null if it is not an "SU"
+     * summary or "throws" if reading it threw an exception.
+     */
+    private static String splitShared(String summary) {
+        try {
+            ArrayList<String> eventName = new ArrayList<>(Arrays.asList(pad(summary).split(" - ")));
+            if (!eventName.get(0).equals("SU")) {
+                return null;
+            }
+            return eventName.get(1) + "|" + eventName.get(2) + "|" + eventName.get(3) + "|" + eventName.get(4);
+        } catch (IndexOutOfBoundsException e) {
+            return THROWS;
+        }
+    }
+
+    /**
+     * The type of a personal calendar summary as it was read before SummaryParser, with or without the padding the
+     * old parsing added, null if it does not belong to INITIALS or "throws" if reading it threw an exception.
+     */
+    private static String splitUnavailabilityType(String summary, boolean padded) {
+        try {
+            ArrayList<String> eventName = new ArrayList<>(Arrays.asList((padded ? pad(summary) : summary)
+                    .split(":")));
+            if (!eventName.get(0).equals(INITIALS)) {
+                return null;
+            }
+            return eventName.get(1).trim();
+        } catch (IndexOutOfBoundsException e) {
+            return THROWS;
+        }
+    }
+
+    private static String pad(String summary) {
+        int fields = summary.split(" - ").length;
+        if (fields == 4) {
+            return summary + " - ?";
+        } else if (fields == 3) {
+            return summary + " - ? - ?";
+        } else if (fields == 2) {
+            return summary + " - ? - ? - ?";
+        }
+        return summary;
+    }
+
+    private static void checkShared(String summary, String expected) {
+        String fields = parseShared(summary);
+        check(Objects.equals(fields, expected), describe(summary, fields, expected));
+    }
+
+    private static void checkOldShared(String summary, String expected) {
+        String fields = splitShared(summary);
+        check(Objects.equals(fields, expected), "old parsing: " + describe(summary, fields, expected));
+    }
+
+    private static void checkUnavailability(String summary, String expected) {
+        String type = SummaryParser.parseUnavailabilityType(summary, INITIALS);
+        check(Objects.equals(type, expected), describe(summary, type, expected));
+    }
+
+    private static void checkOldUnavailability(String summary, String expected) {
+        String type = splitUnavailabilityType(summary, true);
+        check(Objects.equals(type, expected), "old parsing: " + describe(summary, type, expected));
+    }
+
+    private static String describe(String summary, String actual, String expected) {
+        return "\"" + summary + "\" was read as \"" + actual + "\", expected \"" + expected + "\"";
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}